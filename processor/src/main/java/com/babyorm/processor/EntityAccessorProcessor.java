@@ -0,0 +1,231 @@
+package com.babyorm.processor;
+
+import com.babyorm.annotation.*;
+import com.babyorm.util.Case;
+import com.babyorm.util.GeneratedAccessor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Generates a {@link GeneratedAccessor} for every class that uses one of the BabyORM entity annotations, so that
+ * creating entities and getting and setting their fields is plain java instead of reflection.
+ * <p>
+ * Fields are reached directly when they aren't private, otherwise through a getter and setter of the same type.
+ * Fields that can't be reached either way are left out, and the repo falls back to method handles for those.
+ * <p>
+ * Only the accessors are generated. Table and column names come from the database at run time, and rows are still
+ * mapped and bound by the repo's {@link com.babyorm.EntityMapper}, it just goes through these accessors to do it.
+ */
+public class EntityAccessorProcessor extends AbstractProcessor {
+
+    private static final List<Class<? extends Annotation>> ENTITY_ANNOTATIONS =
+            Arrays.asList(PK.class, ColumnName.class, TableName.class, Generated.class, JoinTo.class);
+
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return ENTITY_ANNOTATIONS.stream().map(Class::getCanonicalName).collect(Collectors.toSet());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> entities = new LinkedHashSet<>();
+        for (Class<? extends Annotation> annotation : ENTITY_ANNOTATIONS) {
+            for (Element e : roundEnv.getElementsAnnotatedWith(annotation)) {
+                entities.add(e instanceof TypeElement ? (TypeElement) e : (TypeElement) e.getEnclosingElement());
+            }
+        }
+        entities.stream()
+                .filter(e -> generated.add(e.getQualifiedName().toString()))
+                .forEach(this::generate);
+        //other processors are welcome to these annotations too
+        return false;
+    }
+
+    private void generate(TypeElement entity) {
+        if (entity.getModifiers().contains(Modifier.ABSTRACT)
+                || (entity.getNestingKind() == NestingKind.MEMBER && !entity.getModifiers().contains(Modifier.STATIC))
+                || entity.getNestingKind() == NestingKind.LOCAL || entity.getNestingKind() == NestingKind.ANONYMOUS) {
+            note(entity, "Not generating an accessor for " + entity + ", it can't be created with new");
+            return;
+        }
+        for (Element e = entity; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            if (e.getModifiers().contains(Modifier.PRIVATE)) {
+                note(entity, "Not generating an accessor for " + entity + ", " + (e == entity ? "it's" : e + " is") +
+                        " private so nothing else in the package can see it");
+                return;
+            }
+        }
+        if (ElementFilter.constructorsIn(entity.getEnclosedElements()).stream()
+                .noneMatch(c -> c.getParameters().isEmpty() && isAccessible(c, entity))) {
+            note(entity, "Not generating an accessor for " + entity + ", it needs a no arg constructor that isn't private");
+            return;
+        }
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(entity).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(entity).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                .replace('$', '_') + GeneratedAccessor.SUFFIX;
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        List<VariableElement> fields = ElementFilter.fieldsIn(entity.getEnclosedElements()).stream()
+                .filter(f -> !f.getModifiers().contains(Modifier.STATIC))
+                .filter(f -> !f.getModifiers().contains(Modifier.TRANSIENT))
+                .filter(f -> f.getAnnotation(BabyIgnore.class) == null)
+                .collect(Collectors.toList());
+
+        try (Writer out = processingEnv.getFiler().createSourceFile(qualifiedName, entity).openWriter()) {
+            out.write(source(entity, packageName, simpleName, fields));
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + qualifiedName + ": " + e.getMessage(), entity);
+        }
+    }
+
+    private String source(TypeElement entity, String packageName, String simpleName, List<VariableElement> fields) {
+        String entityName = entity.getQualifiedName().toString();
+        StringBuilder sb = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            sb.append("package ").append(packageName).append(";\n\n");
+        }
+        sb.append("import com.babyorm.util.FieldAccessor;\n")
+                .append("import com.babyorm.util.GeneratedAccessor;\n\n")
+                .append("/**\n * Generated by BabyORM from {@link ").append(entityName).append("}, don't edit this.\n */\n")
+                .append("public final class ").append(simpleName)
+                .append(" implements GeneratedAccessor<").append(entityName).append("> {\n\n");
+
+        List<VariableElement> reachable = new ArrayList<>();
+        for (VariableElement f : fields) {
+            Optional<String> accessor = accessor(entity, entityName, f);
+            if (accessor.isPresent()) {
+                reachable.add(f);
+                sb.append(accessor.get());
+            } else {
+                note(f, "No accessible getter and setter for " + entityName + "#" + f.getSimpleName() + ", it will be accessed with method handles");
+            }
+        }
+
+        sb.append("    @Override\n")
+                .append("    public ").append(entityName).append(" newInstance() {\n")
+                .append("        return new ").append(entityName).append("();\n")
+                .append("    }\n\n");
+        sb.append("    @Override\n")
+                .append("    public FieldAccessor accessor(String fieldName) {\n")
+                .append("        switch (fieldName) {\n");
+        for (VariableElement f : reachable) {
+            sb.append("            case ").append(literal(f.getSimpleName().toString())).append(": return ").append(constantName(f)).append("_ACCESSOR;\n");
+        }
+        sb.append("            default: return null;\n")
+                .append("        }\n")
+                .append("    }\n")
+                .append("}\n");
+        return sb.toString();
+    }
+
+    private Optional<String> accessor(TypeElement entity, String entityName, VariableElement f) {
+        String name = f.getSimpleName().toString();
+        String target = "((" + entityName + ") target)";
+        TypeMirror type = f.asType();
+        String getExpr, setStmt;
+        if (!f.getModifiers().contains(Modifier.PRIVATE) && !f.getModifiers().contains(Modifier.FINAL)) {
+            getExpr = target + "." + name;
+            setStmt = target + "." + name + " = %s";
+        } else {
+            String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            Optional<ExecutableElement> getter = findMethod(entity, type, "get" + capitalized, 0);
+            if (!getter.isPresent() && type.getKind() == TypeKind.BOOLEAN) {
+                getter = findMethod(entity, type, "is" + capitalized, 0);
+            }
+            Optional<ExecutableElement> setter = findMethod(entity, type, "set" + capitalized, 1);
+            if (!getter.isPresent() || !setter.isPresent()) {
+                return Optional.empty();
+            }
+            getExpr = target + "." + getter.get().getSimpleName() + "()";
+            setStmt = target + "." + setter.get().getSimpleName() + "(%s)";
+        }
+
+        String castType = type.getKind().isPrimitive()
+                ? processingEnv.getTypeUtils().boxedClass(processingEnv.getTypeUtils().getPrimitiveType(type.getKind())).getQualifiedName().toString()
+                : processingEnv.getTypeUtils().erasure(type).toString();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("    private static final FieldAccessor ").append(constantName(f)).append("_ACCESSOR = new FieldAccessor() {\n")
+                .append("        @Override\n")
+                .append("        public Object get(Object target) {\n")
+                .append("            return ").append(getExpr).append(";\n")
+                .append("        }\n\n")
+                .append("        @Override\n")
+                .append("        public void set(Object target, Object value) {\n")
+                .append("            ").append(String.format(setStmt, "(" + castType + ") value")).append(";\n")
+                .append("        }\n");
+        String primitive = type.getKind() == TypeKind.INT ? "Int"
+                : type.getKind() == TypeKind.LONG ? "Long"
+                : type.getKind() == TypeKind.DOUBLE ? "Double"
+                : null;
+        if (primitive != null) {
+            String primitiveType = primitive.toLowerCase();
+            sb.append("\n")
+                    .append("        @Override\n")
+                    .append("        public ").append(primitiveType).append(" get").append(primitive).append("(Object target) {\n")
+                    .append("            return ").append(getExpr).append(";\n")
+                    .append("        }\n\n")
+                    .append("        @Override\n")
+                    .append("        public void set").append(primitive).append("(Object target, ").append(primitiveType).append(" value) {\n")
+                    .append("            ").append(String.format(setStmt, "value")).append(";\n")
+                    .append("        }\n");
+        }
+        sb.append("    };\n\n");
+        return Optional.of(sb.toString());
+    }
+
+    private Optional<ExecutableElement> findMethod(TypeElement entity, TypeMirror fieldType, String name, int parameterCount) {
+        return ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(entity)).stream()
+                .filter(m -> m.getSimpleName().contentEquals(name))
+                .filter(m -> m.getParameters().size() == parameterCount)
+                .filter(m -> !m.getModifiers().contains(Modifier.STATIC))
+                .filter(m -> isAccessible(m, entity))
+                .filter(m -> processingEnv.getTypeUtils().isSameType(fieldType,
+                        parameterCount == 0 ? m.getReturnType() : m.getParameters().get(0).asType()))
+                .findFirst();
+    }
+
+    /**
+     * The generated class lives in the entity's package, so anything that isn't private in that package will do
+     */
+    private boolean isAccessible(Element e, TypeElement entity) {
+        if (e.getModifiers().contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        return !e.getModifiers().contains(Modifier.PRIVATE)
+                && processingEnv.getElementUtils().getPackageOf(e).equals(processingEnv.getElementUtils().getPackageOf(entity));
+    }
+
+    private static String constantName(VariableElement f) {
+        return Case.convert(f.getSimpleName().toString(), Case.UPPER_SNAKE_CASE);
+    }
+
+    private static String literal(String s) {
+        return s == null ? "null" : "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private void note(Element e, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message, e);
+    }
+}
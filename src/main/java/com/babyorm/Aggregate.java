@@ -0,0 +1,75 @@
+package com.babyorm;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+/**
+ * The aggregate functions for {@link BabyRepo#aggregate(Aggregate, String)} and friends.
+ * <p>
+ * Averages are worked out from the sum and the count instead of the database's avg, so integer columns don't get their
+ * averages rounded off, and so a big in list split across multiple queries still averages correctly.
+ * <p>
+ * They only work on numeric columns. Sums, mins and maxes are read and added up exactly, and come back as the same kind
+ * of number as the field: a Long for whole numbers, or a BigInteger for a sum too big for one, a BigDecimal for
+ * BigDecimals, and a Double for floating point. Averages always come back as a Double.
+ */
+public enum Aggregate {
+    SUM("SUM"),
+    MIN("MIN"),
+    MAX("MAX"),
+    AVG("SUM");
+
+    private final String function;
+
+    Aggregate(String function) {
+        this.function = function;
+    }
+
+    /**
+     * The select list that computes this aggregate for the column
+     */
+    String selectList(String columnName) {
+        return this == AVG
+                ? function + "(" + columnName + "),COUNT(" + columnName + ")"
+                : function + "(" + columnName + ")";
+    }
+
+    /**
+     * Combine the result of one query into the running total. Nulls are what you get when nothing matched.
+     */
+    BigDecimal combine(BigDecimal total, BigDecimal partial) {
+        if (partial == null) {
+            return total;
+        } else if (total == null) {
+            return partial;
+        }
+        switch (this) {
+            case MIN:
+                return total.min(partial);
+            case MAX:
+                return total.max(partial);
+            default:
+                return total.add(partial);
+        }
+    }
+
+    /**
+     * Turn the combined total into the number that's handed back
+     *
+     * @param total     What {@link #combine(BigDecimal, BigDecimal)} came up with, not null
+     * @param count     How many values went into an average
+     * @param fieldType The type of the field that was aggregated
+     */
+    Number result(BigDecimal total, long count, Class<?> fieldType) {
+        if (this == AVG) {
+            return total.divide(BigDecimal.valueOf(count), MathContext.DECIMAL64).doubleValue();
+        } else if (fieldType == BigDecimal.class) {
+            return total;
+        } else if (fieldType == float.class || fieldType == double.class || fieldType == Float.class || fieldType == Double.class) {
+            return total.doubleValue();
+        }
+        BigInteger whole = total.toBigInteger();
+        return whole.bitLength() < Long.SIZE ? (Number) whole.longValue() : whole;
+    }
+}
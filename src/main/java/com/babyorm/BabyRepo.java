@@ -1,8 +1,9 @@
 package com.babyorm;
 
-import com.babyorm.util.SqlGen;
-
+import java.time.Duration;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * A repo, baby
@@ -41,6 +42,19 @@ public class BabyRepo<T> extends RelationshipHandlingRepo<T> {
         return getOrInitRepoForType(type, BabyRepo::new, connectionSupplier);
     }
 
+    /**
+     * Factory method to get the repository for a small table that's read all the time, with the whole table kept in
+     * memory. See {@link #replicate(Duration, String...)}.
+     *
+     * @param refreshEvery  How often to read the whole table again, null to only read what the repo writes
+     * @param indexedFields The field or column names to look records up by, the primary key always is
+     */
+    public static <E> BabyRepo<E> replicated(Class<E> type, Duration refreshEvery, String... indexedFields) {
+        BabyRepo<E> repo = forType(type);
+        repo.replicate(refreshEvery, indexedFields);
+        return repo;
+    }
+
     /**
      * Find a single record that matches ALL of the columns
      *
@@ -49,8 +63,7 @@ public class BabyRepo<T> extends RelationshipHandlingRepo<T> {
      * @return The found record, if any
      */
     public T getOneByAll(Map<String, ?> columnValueMap) {
-        LinkedHashMap<String, ?> map = keysToColumnNames(columnValueMap);
-        return getSome(SqlGen.whereAll(map), map.keySet().stream().map(map::get).toArray(), false).get(0);
+        return getSomeWhere(keysToColumnNames(columnValueMap), false, false).get(0);
     }
     /**
      * select * from
@@ -80,8 +93,7 @@ public class BabyRepo<T> extends RelationshipHandlingRepo<T> {
      * @return The found record, if any
      */
     public T getOneByAny(Map<String, ?> columnValueMap) {
-        LinkedHashMap<String, ?> map = keysToColumnNames(columnValueMap);
-        return getSome(SqlGen.whereAny(map), map.keySet().stream().map(map::get).toArray(), false).get(0);
+        return getSomeWhere(keysToColumnNames(columnValueMap), true, false).get(0);
     }
 
     /**
@@ -103,8 +115,7 @@ public class BabyRepo<T> extends RelationshipHandlingRepo<T> {
      * @return The found records, if any
      */
     public List<T> getManyByAll(Map<String, ?> columnValueMap) {
-        LinkedHashMap<String, ?> map = keysToColumnNames(columnValueMap);
-        return getSome(SqlGen.whereAll(map), map.keySet().stream().map(map::get).toArray(), true);
+        return getSomeWhere(keysToColumnNames(columnValueMap), false, true);
     }
 
     /**
@@ -115,10 +126,90 @@ public class BabyRepo<T> extends RelationshipHandlingRepo<T> {
      * @return The found records, if any
      */
     public List<T> getManyByAny(Map<String, ?> columnValueMap) {
-        LinkedHashMap<String, ?> map = keysToColumnNames(columnValueMap);
-        return getSome(SqlGen.whereAny(map), map.keySet().stream().map(map::get).toArray(), true);
+        return getSomeWhere(keysToColumnNames(columnValueMap), true, true);
+    }
+
+
+    /**
+     * Get one page of records in order, picking up right after the given key instead of skipping over an offset, so
+     * deep pages are as quick as the first one. The primary key columns are added to the end of the order to make
+     * sure every record has its own spot. The order by columns shouldn't be nullable, nulls don't page well.
+     * <p>
+     * {@code Page<Baby> page = repo.page(Arrays.asList("name", "pk desc"), null, 50);}
+     *
+     * @param orderBy  The field or column names to order by, each can end with " desc" to go the other way
+     * @param afterKey {@link Page#getNextKey()} from the previous page, null for the first page
+     * @param pageSize The most records to put on the page
+     */
+    public Page<T> page(List<String> orderBy, List<?> afterKey, int pageSize) {
+        return pageAfter(orderBy, afterKey, pageSize);
     }
 
+    /**
+     * Get the page after the given one, null if that was the last page
+     */
+    public Page<T> nextPage(Page<T> page) {
+        return page.hasNext() ? pageAfter(page.getOrderBy(), page.getNextKey(), page.getPageSize()) : null;
+    }
+
+    /**
+     * Only select some of the columns, for when you don't need the whole record.
+     * <p>
+     * {@code repo.select("name", "hairColor").manyBy("parent", parentKey)}
+     *
+     * @param fieldOrColumnNames The field or column names to select
+     * @return A query for just those columns, which gives back partially filled in entities unless told otherwise
+     */
+    public Projection<T, T> select(String... fieldOrColumnNames) {
+        return new Projection<>(this, selectPlan(Arrays.asList(fieldOrColumnNames)), null);
+    }
+
+    /**
+     * Stream every record in the table, reading them as the stream is consumed instead of all at once.
+     * The stream holds on to a connection until it's closed, so use try with resources.
+     */
+    public Stream<T> stream() {
+        return streamSome(null, null);
+    }
+
+    /**
+     * Hand every record in the table to the action, reusing the same instance for every row.
+     * The action must copy anything it wants to keep, see {@link #forEachRow(String, Consumer, Object...)}
+     */
+    public void forEachRow(Consumer<? super T> action) {
+        forEachRow(getBaseSql(), action);
+    }
+
+    /**
+     * Stream the records that match a single column. See {@link #stream()}
+     *
+     * @param field The field name/column name you want to look up the records by.
+     * @param value The value you're searching for.
+     *              If the value is a collection, an in list will be created.
+     */
+    public Stream<T> streamManyBy(String field, Object value) {
+        return streamManyByAll(Collections.singletonMap(field, value));
+    }
+
+    /**
+     * Stream the records that match ALL of the columns. See {@link #stream()}
+     *
+     * @param columnValueMap A map of column/field names and the values to look up by.
+     *                       If the value is a collection, an in list will be created.
+     */
+    public Stream<T> streamManyByAll(Map<String, ?> columnValueMap) {
+        return streamSomeWhere(keysToColumnNames(columnValueMap), false);
+    }
+
+    /**
+     * Stream the records that match ANY of the columns. See {@link #stream()}
+     *
+     * @param columnValueMap A map of column/field names and the values to look up by.
+     *                       If the value is a collection, an in list will be created.
+     */
+    public Stream<T> streamManyByAny(Map<String, ?> columnValueMap) {
+        return streamSomeWhere(keysToColumnNames(columnValueMap), true);
+    }
 
     /**
      * Insert or update the given record. This has worse performance that insert or update by themselves as we have to
@@ -132,13 +223,111 @@ public class BabyRepo<T> extends RelationshipHandlingRepo<T> {
     public T save(T record) {
         Objects.requireNonNull(record, "Can't save a null record");
         Map<String, ?> key = fieldValueMap(getKeyFields(), record);
-        Object o = key.size() == getKeyFields().size() ? getOneByAll(key) : null;
-        if (o == null) {
-            return insert(record);
-        } else {
-            T saved = getOneByAll(key);
-            return saved != null ? update(record) : insert(record);
-        }
+        return !getKeyFields().isEmpty() && key.size() == getKeyFields().size() && existsByAll(key) ? update(record) : insert(record);
+    }
+
+    /**
+     * Count every record in the table
+     */
+    public long count() {
+        return countWhere(new LinkedHashMap<>(), false);
+    }
+
+    /**
+     * Count the records that match a single column
+     *
+     * @param field The field name/column name to count by.
+     * @param value The value to count. If the value is a collection, an in list will be created.
+     */
+    public long countBy(String field, Object value) {
+        return countByAll(Collections.singletonMap(field, value));
+    }
+
+    /**
+     * Count the records that match ALL of the columns
+     *
+     * @param columnValueMap A map of column/field names and the values to count by.
+     *                       If the value is a collection, an in list will be created.
+     */
+    public long countByAll(Map<String, ?> columnValueMap) {
+        return countWhere(keysToColumnNames(columnValueMap), false);
+    }
+
+    /**
+     * Count the records that match ANY of the columns
+     *
+     * @param columnValueMap A map of column/field names and the values to count by.
+     *                       If the value is a collection, an in list will be created.
+     */
+    public long countByAny(Map<String, ?> columnValueMap) {
+        return countWhere(keysToColumnNames(columnValueMap), true);
+    }
+
+    /**
+     * Check if there's a record that matches a single column, without reading it
+     *
+     * @param field The field name/column name to look up by.
+     * @param value The value to look for. If the value is a collection, an in list will be created.
+     */
+    public boolean existsBy(String field, Object value) {
+        return existsByAll(Collections.singletonMap(field, value));
+    }
+
+    /**
+     * Check if there's a record that matches ALL of the columns, without reading it
+     *
+     * @param columnValueMap A map of column/field names and the values to look for.
+     *                       If the value is a collection, an in list will be created.
+     */
+    public boolean existsByAll(Map<String, ?> columnValueMap) {
+        return existsWhere(keysToColumnNames(columnValueMap), false);
+    }
+
+    /**
+     * Check if there's a record that matches ANY of the columns, without reading it
+     *
+     * @param columnValueMap A map of column/field names and the values to look for.
+     *                       If the value is a collection, an in list will be created.
+     */
+    public boolean existsByAny(Map<String, ?> columnValueMap) {
+        return existsWhere(keysToColumnNames(columnValueMap), true);
+    }
+
+    /**
+     * Aggregate a numeric column over the whole table
+     *
+     * @param aggregate The aggregate function
+     * @param column    The field or column name to aggregate, its field has to be a number
+     * @return The aggregate, or empty if there are no non null values. See {@link Aggregate} for what kind of number it is.
+     */
+    public Optional<Number> aggregate(Aggregate aggregate, String column) {
+        return aggregateWhere(aggregate, column, new LinkedHashMap<>(), false);
+    }
+
+    /**
+     * Aggregate a numeric column over the records that match ALL of the columns
+     *
+     * @param aggregate      The aggregate function
+     * @param column         The field or column name to aggregate, its field has to be a number
+     * @param columnValueMap A map of column/field names and the values to filter by.
+     *                       If the value is a collection, an in list will be created.
+     * @return The aggregate, or empty if no non null values matched. See {@link Aggregate} for what kind of number it is.
+     */
+    public Optional<Number> aggregateByAll(Aggregate aggregate, String column, Map<String, ?> columnValueMap) {
+        return aggregateWhere(aggregate, column, keysToColumnNames(columnValueMap), false);
+    }
+
+    /**
+     * Aggregate a numeric column over the records that match ANY of the columns
+     *
+     * @param aggregate      The aggregate function
+     * @param column         The field or column name to aggregate, its field has to be a number
+     * @param columnValueMap A map of column/field names and the values to filter by.
+     *                       If the value is a collection, an in list will be created.
+     * @return The aggregate, or empty if no non null values matched. See {@link Aggregate} for what kind of number it is.
+     */
+    public Optional<Number> aggregateByAny(Aggregate aggregate, String column, Map<String, ?> columnValueMap) {
+        return aggregateWhere(aggregate, column, keysToColumnNames(columnValueMap), true);
     }
 
     /**
@@ -170,7 +359,7 @@ public class BabyRepo<T> extends RelationshipHandlingRepo<T> {
      * @return whether any records were deleted
      */
     public int deleteByAll(Map<String, ?> columnValueMap) {
-        return delete(columnValueMap, SqlGen.whereAll(keysToColumnNames(columnValueMap)));
+        return deleteWhere(keysToColumnNames(columnValueMap), false);
     }
 
     /**
@@ -181,7 +370,7 @@ public class BabyRepo<T> extends RelationshipHandlingRepo<T> {
      * @return whether any records were deleted
      */
     public int deleteByAny(Map<String, ?> columnValueMap) {
-        return delete(columnValueMap, SqlGen.whereAny(keysToColumnNames(columnValueMap)));
+        return deleteWhere(keysToColumnNames(columnValueMap), true);
     }
 
 }
\ No newline at end of file
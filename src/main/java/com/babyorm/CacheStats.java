@@ -0,0 +1,59 @@
+package com.babyorm;
+
+/**
+ * How a repo's cache has been doing since it was turned on, a snapshot that doesn't change after it's taken.
+ */
+public final class CacheStats {
+
+    static final CacheStats NONE = new CacheStats(0, 0, 0, 0, 0);
+
+    private final long hits, misses, evictions, size, bytes;
+
+    CacheStats(long hits, long misses, long evictions, long size, long bytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.bytes = bytes;
+    }
+
+    /**
+     * How many lookups were answered without going to the database
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * How many lookups had to go to the database
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * How many entries were pushed out for being too old or to make room, changed records being dropped don't count
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * How many entries are in the cache right now
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Roughly how many bytes the entries take up, for the caches held to a memory budget, otherwise 0
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", size=" + size + ", bytes=" + bytes + "}";
+    }
+}
@@ -0,0 +1,213 @@
+package com.babyorm;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A checked out connection along with a bounded LRU cache of the statements prepared on it, so running the same sql
+ * again on the same connection doesn't have to prepare it again.
+ * <p>
+ * Statements are closed when they're evicted from the cache, and all of them are closed when this is closed, right
+ * before the connection is closed (i.e. handed back to the pool).
+ * <p>
+ * The tables written to on the connection are noted, and their {@link TableVersions} bumped when it's closed, once
+ * everything written is either committed or rolled back.
+ */
+class CachedConnection implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(CachedConnection.class.getCanonicalName());
+
+    private final Connection connection;
+    private final Map<StatementKey, PreparedStatement> statements;
+    private Dialect dialect;
+    private boolean endCursorTransaction;
+    private final List<PreparedStatement> cursors = new ArrayList<>();
+    private Set<String> written;
+
+    CachedConnection(Connection connection, int maxStatements) {
+        this.connection = Objects.requireNonNull(connection, "The connection supplier returned a null connection");
+        this.statements = new LinkedHashMap<StatementKey, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StatementKey, PreparedStatement> eldest) {
+                if (size() > maxStatements) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * The dialect of the database on the other end, repos can be pointed at a different database at any time so this
+     * is asked of each connection rather than the repo
+     */
+    Dialect getDialect() throws SQLException {
+        if (dialect == null) {
+            dialect = Dialect.of(connection.getMetaData());
+        }
+        return dialect;
+    }
+
+    /**
+     * Get a prepared statement for the sql, reusing the one prepared earlier on this connection if it's still cached
+     *
+     * @param sql                 The sql to prepare
+     * @param returnGeneratedKeys Whether the driver should hand back generated keys, only ask for this on inserts
+     * @return The prepared statement with its parameters cleared
+     */
+    PreparedStatement prepare(String sql, boolean returnGeneratedKeys) throws SQLException {
+        StatementKey key = new StatementKey(sql, returnGeneratedKeys);
+        PreparedStatement st = statements.get(key);
+        if (st == null || st.isClosed()) {
+            st = returnGeneratedKeys
+                    ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                    : connection.prepareStatement(sql);
+            statements.put(key, st);
+        } else {
+            st.clearParameters();
+        }
+        return st;
+    }
+
+    /**
+     * Note that the table is about to be written to
+     */
+    void wrote(String table) {
+        if (written == null) {
+            written = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        }
+        written.add(table);
+    }
+
+    /**
+     * Set up the statement so the driver reads the result a bit at a time instead of all at once. Some drivers need a
+     * transaction for this, which is rolled back when this connection is closed since nothing was written.
+     * <p>
+     * The statement is taken out of the cache until this is closed, so other statements run on this connection while
+     * the result is read, like the loads of its children, can't push it out of the cache and close it, or run over it.
+     */
+    void useCursor(PreparedStatement st, int fetchSize) throws SQLException {
+        if (statements.values().remove(st)) {
+            cursors.add(st);
+        }
+        Dialect dialect = getDialect();
+        if (dialect.cursorNeedsTransaction() && connection.getAutoCommit()) {
+            connection.setAutoCommit(false);
+            endCursorTransaction = true;
+        }
+        st.setFetchSize(dialect.cursorFetchSize(fetchSize));
+    }
+
+    /**
+     * Commit, unless the connection is going to do it on its own
+     */
+    void commit() throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+
+    /**
+     * Run the work in one transaction, committing at the end or rolling back if anything goes wrong.
+     * If the connection was in auto commit mode it's put back that way afterwards.
+     */
+    <R> R inTransaction(SqlWork<R> work) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
+        try {
+            R result = work.run();
+            connection.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            }
+            throw e;
+        } finally {
+            if (autoCommit) {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        List<PreparedStatement> toClose = new ArrayList<>(statements.values());
+        toClose.addAll(cursors);
+        statements.clear();
+        cursors.clear();
+        try {
+            toClose.forEach(CachedConnection::closeQuietly);
+            if (endCursorTransaction) {
+                endCursorTransaction = false;
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            try {
+                connection.close();
+            } finally {
+                if (written != null) {
+                    TableVersions.changed(written);
+                    written = null;
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement st) {
+        try {
+            st.close();
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Failed to close cached statement", e);
+        }
+    }
+
+    @FunctionalInterface
+    interface SqlWork<R> {
+        R run() throws SQLException;
+    }
+
+    private static class StatementKey {
+        private final String sql;
+        private final boolean returnGeneratedKeys;
+
+        StatementKey(String sql, boolean returnGeneratedKeys) {
+            this.sql = sql;
+            this.returnGeneratedKeys = returnGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof StatementKey)) return false;
+            StatementKey that = (StatementKey) o;
+            return returnGeneratedKeys == that.returnGeneratedKeys && sql.equals(that.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sql.hashCode() + (returnGeneratedKeys ? 1 : 0);
+        }
+    }
+}
@@ -2,22 +2,25 @@ package com.babyorm;
 
 import com.babyorm.annotation.*;
 import com.babyorm.util.Case;
-import com.babyorm.util.EntityReflectingUtils;
+import com.babyorm.util.EntityAccessor;
 import com.babyorm.util.SqlGen;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
 import java.sql.*;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static com.babyorm.util.EntityReflectingUtils.getSafe;
-import static com.babyorm.util.EntityReflectingUtils.setSafe;
-
 /**
  * Where the work happens for the baby repo, this exists just to keep the core logic and all the nice fluff separate
  *
@@ -26,22 +29,38 @@ import static com.babyorm.util.EntityReflectingUtils.setSafe;
 public abstract class CoreRepo<T> {
 
     private static final Logger logger = Logger.getLogger(CoreRepo.class.getCanonicalName());
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_FETCH_SIZE = 1000;
     protected static ConnectionSupplier defaultConnectionSupplier;
 
     private EntityMapper<T> entityMapper;
+    private EntityAccessor<T> entityAccessor;
     private ConnectionSupplier connectionSupplier;
     protected Class<T> entityType;
     private Field databaseGeneratedField;
     private List<Field> fields, nonKeyFields;
-    private String baseSql, updateSql, insertSqlNoKey, insertSql, deleteSql;
+    private String baseSql, updateSql, insertSqlNoKey, insertSql, deleteSql, countSql, existsSql;
     private List<Field> keyFields;
+    private List<JoinTableLink<T>> links;
     private Map<Field, ColumnValueProvider> columnValueProviders;
     private boolean isAutoGen;
     protected Map<String, String> colNameToFieldName, fieldNameToColName;
     private String tableFullName;
     private String catalog;
+    private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+    private Integer maxInListSize;
+    private boolean parallelInLists;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    private volatile RecordCache<T> cache;
+    private volatile QueryCache<T> queryCache;
+    private volatile Set<String> graphTables;
+    private volatile Replica<T> replica;
 
     private static final ConcurrentHashMap<Class<?>, CoreRepo<?>> REPO_REGISTRY = new ConcurrentHashMap<>();
+    private final Map<List<Field>, SelectPlan> selectPlans = new ConcurrentHashMap<>();
+    private SelectPlan selectAll;
 
     protected CoreRepo(Class<T> entityType, ConnectionSupplier connectionSupplier) {
         this.entityType = entityType;
@@ -51,7 +70,7 @@ public abstract class CoreRepo<T> {
         String schemaName = tableFullName.contains(".") ? tableFullName.split("\\.")[0] : null;
         String tableName = tableFullName.contains(".") ? tableFullName.split("\\.")[1] : tableFullName;
         fields = Arrays.stream(entityType.getDeclaredFields())
-                .filter(f -> !isTransient(f))
+                .filter(f -> !isTransient(f) && f.getAnnotation(JoinTable.class) == null)
                 .collect(Collectors.toList());
         fields.forEach(f -> f.setAccessible(true));
 
@@ -61,7 +80,12 @@ public abstract class CoreRepo<T> {
         keyFields = determineKeyFields(schemaName, tableName, fields, colNameToFieldName);
         nonKeyFields = fields.stream().filter(f -> !keyFields.contains(f)).collect(Collectors.toList());
 
-        entityMapper = new EntityMapper<>(entityType, fields, fieldNameToColName);
+        entityAccessor = EntityAccessor.forType(entityType);
+        links = Arrays.stream(entityType.getDeclaredFields())
+                .filter(f -> !isTransient(f) && f.getAnnotation(JoinTable.class) != null)
+                .map(f -> new JoinTableLink<>(this, f))
+                .collect(Collectors.toList());
+        entityMapper = new EntityMapper<>(entityType, fields, fieldNameToColName, links, keyFields);
 
         List<Field> dbGenFields = fields.stream()
                 .filter(f ->
@@ -90,6 +114,12 @@ public abstract class CoreRepo<T> {
             databaseGeneratedField = dbGenFields.get(0);
         }
         buildCachedSqlStatements();
+        Cached cached = entityType.getAnnotation(Cached.class);
+        if (cached != null && cached.offHeapBytes() > 0) {
+            setOffHeapCache(cached.offHeapBytes());
+        } else if (cached != null) {
+            setCache(cached.maxSize(), cached.ttlSeconds() > 0 ? Duration.ofSeconds(cached.ttlSeconds()) : null);
+        }
     }
 
 
@@ -112,15 +142,415 @@ public abstract class CoreRepo<T> {
         this.connectionSupplier = connectionSupplier;
     }
 
+    /**
+     * Set how many prepared statements are kept per connection while it's checked out. Statements past this are closed,
+     * least recently used first. All of them are closed when the connection is handed back.
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        if (statementCacheSize < 1) {
+            throw new IllegalArgumentException("The statement cache must hold at least one statement");
+        }
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Set the most values to put in a single in list, bigger collections get split across multiple queries.
+     * Null goes back to the default for whatever database the connection is talking to.
+     */
+    public void setMaxInListSize(Integer maxInListSize) {
+        if (maxInListSize != null && maxInListSize < 1) {
+            throw new IllegalArgumentException("An in list needs room for at least one value");
+        }
+        this.maxInListSize = maxInListSize;
+    }
+
+    /**
+     * When a collection is big enough to be split across multiple queries, run those queries in parallel on their
+     * own connections instead of back to back on one. Deletes always run back to back on one connection.
+     */
+    public void setParallelInLists(boolean parallelInLists) {
+        this.parallelInLists = parallelInLists;
+    }
+
+    /**
+     * Set how many records go in each batch for the batched operations like {@link #insertAll(Collection)}.
+     * Each batch is committed on its own.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("A batch needs at least one record in it");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Set how many rows the driver should fetch at a time for the stream methods, like {@link #streamExecute(String, Object...)}
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("The fetch size must be at least one row");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Keep up to maxSize records around by primary key, so {@link #get(ColumnValueProvider)}, getOneBy on the key, and
+     * loading them as someone else's child, don't go to the database every time. Everyone gets their own copy of a cached record, but
+     * the children on it are shared.
+     * <p>
+     * Records are dropped when they're changed or deleted through this repo, writes that go around it, like
+     * {@link #execute(String, Object...)} or another repo for the same table, aren't noticed until the ttl is up.
+     * Setting the cache starts a new empty one. See also {@link Cached}.
+     *
+     * @param maxSize The most records to keep, the least recently used go first. 0 turns the cache off.
+     * @param ttl     How long a record is good for after it's read, null to keep it until it's pushed out or changed
+     */
+    public void setCache(int maxSize, Duration ttl) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The cache can't hold less than nothing");
+        }
+        if (maxSize > 0 && keyFields.isEmpty()) {
+            throw new BabyDBException("Records are cached by primary key, and " + entityType.getCanonicalName() + " doesn't have one");
+        }
+        this.cache = maxSize == 0 ? null : new EntityCache<>(copier(), maxSize, ttl == null ? 0 : ttl.toNanos());
+    }
+
+    /**
+     * Like {@link #setCache(int, Duration)}, but the records are kept as bytes in direct buffers instead of as objects,
+     * so a cache of millions of rows doesn't turn into millions of objects for the garbage collector to go through.
+     * <p>
+     * Once the buffers are full the oldest rows are written over. Every hit is decoded into a new record, and its
+     * children are loaded through their own repos, which had better have a cache of their own.
+     *
+     * @param maxBytes How much memory the rows can take up, split into buffers of up to a gigabyte each. The index of
+     *                 where each row is sits on the heap, on top of this. 0 turns the cache off.
+     */
+    public void setOffHeapCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("The cache can't hold less than nothing");
+        }
+        if (maxBytes > 0 && keyFields.isEmpty()) {
+            throw new BabyDBException("Records are cached by primary key, and " + entityType.getCanonicalName() + " doesn't have one");
+        }
+        this.cache = maxBytes == 0 ? null : new OffHeapEntityCache<>(entityMapper, maxBytes);
+    }
+
+    /**
+     * Drop everything in the cache, for when the table was changed behind this repo's back
+     */
+    public void clearCache() {
+        RecordCache<T> c = cache;
+        if (c != null) {
+            c.clear();
+        }
+    }
+
+    /**
+     * How the cache is doing, all zeros if it's off
+     */
+    public CacheStats getCacheStats() {
+        RecordCache<T> c = cache;
+        return c == null ? CacheStats.NONE : c.stats();
+    }
+
+    /**
+     * Keep the results of the getBy and {@link #execute(String, Object...)} queries around by their sql and bind
+     * values, so running the same query again doesn't go to the database until something is written to one of the
+     * tables it reads. That's any table named in the sql, plus the tables of every entity it loads as a child. Only
+     * writes through a repo are noticed, anything else needs a {@link #clearQueryCache()}.
+     * <p>
+     * Everyone gets their own copies of the cached records, but the children on them are shared. Setting the cache
+     * starts a new empty one.
+     *
+     * @param maxBytes Roughly how much memory the results can take up, the least recently used go first. Results
+     *                 bigger than this aren't cached. 0 turns the cache off.
+     */
+    public void setQueryCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("The query cache can't hold less than nothing");
+        }
+        this.queryCache = maxBytes == 0 ? null : new QueryCache<>(copier(), maxBytes);
+    }
+
+    /**
+     * Drop every cached query result, for when the tables were changed behind the repos' backs
+     */
+    public void clearQueryCache() {
+        QueryCache<T> c = queryCache;
+        if (c != null) {
+            c.clear();
+        }
+    }
+
+    /**
+     * How the query cache is doing, all zeros if it's off
+     */
+    public CacheStats getQueryCacheStats() {
+        QueryCache<T> c = queryCache;
+        return c == null ? CacheStats.NONE : c.stats();
+    }
+
+    /**
+     * Keep the whole table in memory, for small tables that are read all the time, like lookup codes. getAll, get,
+     * and the getBy methods are answered from memory whenever the columns they look up by have an index, in lists and
+     * all, and so is loading these records as someone else's child. The primary key always has an index.
+     * <p>
+     * Writes through this repo read the rows they wrote back in before they return, and swap them in without holding
+     * up anyone that's reading. Writes that go around this repo aren't noticed until the next refresh. Values are
+     * compared the way java compares them, with whole numbers all the same, so a database that ignores case can find
+     * things the replica won't. Everyone gets their own copies of the records, but the children on them are shared.
+     * Replicating again starts over.
+     *
+     * @param refreshEvery  How often to read the whole table again, null to only read what this repo writes
+     * @param indexedFields The field or column names to look records up by
+     */
+    public void replicate(Duration refreshEvery, String... indexedFields) {
+        if (keyFields.isEmpty()) {
+            throw new BabyDBException("Replicas are kept up to date by primary key, and " + entityType.getCanonicalName() + " doesn't have one");
+        }
+        if (refreshEvery != null && (refreshEvery.isNegative() || refreshEvery.isZero())) {
+            throw new IllegalArgumentException("The replica can't be refreshed that often");
+        }
+        Map<String, Function<T, Object>> columns = new HashMap<>(fields.size() * 2);
+        fields.forEach(f -> columns.put(fieldNameToColName.get(f.getName()), r -> entityMapper.columnValue(r, f)));
+        Set<String> indexed = new HashSet<>();
+        for (String name : indexedFields) {
+            indexed.add(fieldNameToColName.get(resolveField(name).getName()));
+        }
+        boolean singleKey = keyFields.size() == 1;
+        if (singleKey) {
+            indexed.add(fieldNameToColName.get(keyFields.get(0).getName()));
+        }
+        Replica<T> r = new Replica<>(tableFullName, copier(), t -> EntityCache.key(keyValues(t)), columns, indexed,
+                this::readAll, singleKey ? this::readKeys : null);
+        if (refreshEvery != null) {
+            r.refreshEvery(refreshEvery);
+        }
+        stopReplicating();
+        replica = r;
+    }
+
+    /**
+     * Go back to reading everything from the database
+     */
+    public void stopReplicating() {
+        Replica<T> r = replica;
+        replica = null;
+        if (r != null) {
+            r.stop();
+        }
+    }
+
+    private List<T> readAll() {
+        try (CachedConnection conn = getCachedConnection()) {
+            return getSome(conn, readPlan(), null, null, true);
+        } catch (SQLException e) {
+            throw new BabyDBException("Failed to execute query", e);
+        }
+    }
+
+    private List<T> readKeys(List<List<Object>> keys) {
+        LinkedHashMap<String, Object> where = new LinkedHashMap<>(1);
+        where.put(fieldNameToColName.get(keyFields.get(0).getName()), keys.stream().map(k -> k.get(0)).collect(Collectors.toList()));
+        return readSomeWhere(readPlan(), where, false, true);
+    }
+
+    private RecordCopier<T> copier() {
+        List<Field> copied = new ArrayList<>(fields);
+        links.forEach(l -> copied.add(l.getField()));
+        return new RecordCopier<>(entityAccessor, copied);
+    }
+
+    /**
+     * Run the query through the query cache, if it's on
+     *
+     * @param sql   The sql, or enough to tell it apart from every other query this repo runs
+     * @param binds The values bound to the sql
+     */
+    private List<T> cached(String sql, Object[] binds, Supplier<List<T>> query) {
+        QueryCache<T> c = queryCache;
+        if (c == null) {
+            return query.get();
+        }
+        QueryCache.Key key = new QueryCache.Key(sql, binds);
+        List<T> hit = c.get(key);
+        if (hit != null) {
+            return hit;
+        }
+        Set<String> tables = new HashSet<>(TableVersions.namesIn(sql));
+        tables.addAll(graphTables());
+        QueryCache.Versions versions = c.versions(tables);
+        List<T> found = query.get();
+        c.put(key, versions, found);
+        return found;
+    }
+
+    /**
+     * This table, and the tables of everything that's loaded along with it, all the way down
+     */
+    private Set<String> graphTables() {
+        Set<String> tables = graphTables;
+        if (tables == null) {
+            tables = new HashSet<>();
+            collectTables(tables, new HashSet<>());
+            graphTables = tables;
+        }
+        return tables;
+    }
+
+    void collectTables(Set<String> tables, Set<CoreRepo<?>> seen) {
+        if (!seen.add(this)) {
+            return;
+        }
+        tables.add(tableFullName);
+        for (Class<?> childType : entityMapper.childTypes()) {
+            BabyRepo.forType(childType).collectTables(tables, seen);
+        }
+        for (JoinTableLink<T> link : links) {
+            tables.add(link.getTable());
+            BabyRepo.forType(link.getPropType()).collectTables(tables, seen);
+        }
+    }
+
     private void buildCachedSqlStatements() {
         List<String> orderedFields = fields.stream().map(Field::getName).map(fieldNameToColName::get).collect(Collectors.toList());
         List<String> orderedNonKeys = nonKeyFields.stream().map(Field::getName).map(fieldNameToColName::get).collect(Collectors.toList());
 
         baseSql = SqlGen.all(tableFullName);
         deleteSql = SqlGen.delete(tableFullName);
+        countSql = SqlGen.count(tableFullName);
+        existsSql = SqlGen.exists(tableFullName);
         updateSql = SqlGen.update(tableFullName, orderedNonKeys);
         insertSqlNoKey = SqlGen.insert(tableFullName, orderedNonKeys);
         insertSql = SqlGen.insert(tableFullName, orderedFields);
+        selectAll = new SelectPlan(baseSql, entityMapper.selectAll(), true);
+    }
+
+    /**
+     * Get the plan to select only the given fields. Plans are cached per set of fields.
+     *
+     * @param fieldOrColumnNames The field or column names to select
+     */
+    SelectPlan selectPlan(List<String> fieldOrColumnNames) {
+        if (fieldOrColumnNames == null || fieldOrColumnNames.isEmpty()) {
+            throw new BabyDBException("You have to select at least one field");
+        }
+        List<Field> selected = new ArrayList<>(fieldOrColumnNames.size());
+        for (String name : fieldOrColumnNames) {
+            Field field = resolveField(name);
+            if (!selected.contains(field)) {
+                selected.add(field);
+            }
+        }
+        return selectPlans.computeIfAbsent(selected, s -> new SelectPlan(
+                SqlGen.select(tableFullName, s.stream().map(f -> fieldNameToColName.get(f.getName())).collect(Collectors.toList())),
+                entityMapper.select(s),
+                s.containsAll(keyFields)));
+    }
+
+    Field resolveField(String fieldOrColumnName) {
+        String fieldName = colNameToFieldName.getOrDefault(fieldOrColumnName.toUpperCase(), fieldOrColumnName);
+        return fields.stream().filter(f -> f.getName().equals(fieldName)).findFirst()
+                .orElseThrow(() -> new BabyDBException("There's no field or column named " + fieldOrColumnName + " on " + entityType.getCanonicalName()));
+    }
+
+    /**
+     * Get one page of records in order, starting right after the given key. The primary key columns are added to the
+     * end of the order, if they aren't in it already, so every record has its own place.
+     *
+     * @param orderBy  The field or column names to order by, each can end with " desc" to go the other way
+     * @param afterKey The values of the order by columns for the last record of the previous page, null for the first page
+     * @param pageSize The most records to put on the page
+     */
+    protected Page<T> pageAfter(List<String> orderBy, List<?> afterKey, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("A page needs room for at least one record");
+        }
+        if (keyFields.isEmpty()) {
+            throw new BabyDBException("Can't page through " + entityType.getCanonicalName() + " without a primary key to tell the records apart");
+        }
+        List<Field> orderFields = new ArrayList<>();
+        List<Boolean> directions = new ArrayList<>();
+        for (String column : Optional.ofNullable(orderBy).orElse(Collections.emptyList())) {
+            String[] parts = column.trim().split("\\s+");
+            Field field = resolveField(parts[0]);
+            if (!orderFields.contains(field)) {
+                orderFields.add(field);
+                directions.add(parts.length > 1 && parts[1].equalsIgnoreCase("desc"));
+            }
+        }
+        keyFields.stream().filter(f -> !orderFields.contains(f)).forEach(f -> {
+            orderFields.add(f);
+            directions.add(false);
+        });
+        if (afterKey != null && afterKey.size() != orderFields.size()) {
+            throw new BabyDBException("The key to start after needs a value for each of " + orderFields.stream().map(Field::getName).collect(Collectors.toList()));
+        }
+        List<String> columns = orderFields.stream().map(f -> fieldNameToColName.get(f.getName())).collect(Collectors.toList());
+        boolean[] descending = new boolean[directions.size()];
+        for (int i = 0; i < descending.length; i++) {
+            descending[i] = directions.get(i);
+        }
+
+        List<T> found;
+        try (CachedConnection conn = getCachedConnection()) {
+            Dialect dialect = conn.getDialect();
+            boolean rowValues = dialect.supportsRowValues() && SqlGen.canUseRowValues(descending);
+            List<Object> binds = new ArrayList<>();
+            if (afterKey != null) {
+                if (rowValues) {
+                    binds.addAll(afterKey);
+                } else {
+                    for (int i = 1; i <= afterKey.size(); i++) {
+                        binds.addAll(afterKey.subList(0, i));
+                    }
+                }
+            }
+            //one extra to see if there's another page
+            String where = (afterKey == null ? "" : SqlGen.seek(columns, descending, rowValues))
+                    + SqlGen.orderBy(columns, descending)
+                    + dialect.limit(pageSize + 1);
+            found = getSome(conn, where, binds.toArray(), true);
+        } catch (SQLException e) {
+            throw new BabyDBException("Failed to get page", e);
+        }
+        List<String> orderedBy = new ArrayList<>(orderFields.size());
+        for (int i = 0; i < descending.length; i++) {
+            orderedBy.add(orderFields.get(i).getName() + (descending[i] ? " desc" : ""));
+        }
+        if (found.size() <= pageSize) {
+            return new Page<>(found, orderedBy, null, pageSize);
+        }
+        List<T> records = new ArrayList<>(found.subList(0, pageSize));
+        T last = records.get(pageSize - 1);
+        return new Page<>(records, orderedBy, orderFields.stream().map(f -> entityAccessor.get(f, last)).collect(Collectors.toList()), pageSize);
+    }
+
+    /**
+     * The select sql and mapping plan for some or all of the columns
+     */
+    class SelectPlan {
+        private final String baseSql, suffix;
+        private final EntityMapper<T>.Selection selection;
+        private final boolean hasKey;
+
+        private SelectPlan(String baseSql, EntityMapper<T>.Selection selection, boolean hasKey) {
+            this(baseSql, "", selection, hasKey);
+        }
+
+        /**
+         * @param suffix What goes after the where clause
+         */
+        SelectPlan(String baseSql, String suffix, EntityMapper<T>.Selection selection, boolean hasKey) {
+            this.baseSql = baseSql;
+            this.suffix = suffix;
+            this.selection = selection;
+            this.hasKey = hasKey;
+        }
+
+        EntityMapper<T>.Selection getSelection() {
+            return selection;
+        }
     }
 
     /**
@@ -240,6 +670,13 @@ public abstract class CoreRepo<T> {
                 );
     }
 
+    /**
+     * Check out a connection that caches the statements prepared on it until it's closed
+     */
+    CachedConnection getCachedConnection() {
+        return new CachedConnection(getConnection(), statementCacheSize);
+    }
+
     /**
      * Get one record by it's primary key
      */
@@ -251,19 +688,446 @@ public abstract class CoreRepo<T> {
      * Get one record by it's set of primary keys
      */
     public T get(Map<String, ColumnValueProvider> keyProvider) {
+        return getByKey(toKey(keyProvider));
+    }
+
+    private T getByKey(LinkedHashMap<String, ?> key) {
+        Replica<T> r = replica;
+        List<T> replicated = r == null ? null : r.find(key, false);
+        if (replicated != null) {
+            return mergeChunks(replicated, false, false).get(0);
+        }
+        T hit = getCached(key, null);
+        if (hit != null) {
+            return hit;
+        }
+        try (CachedConnection conn = getCachedConnection()) {
+            return read(conn, key);
+        } catch (SQLException e) {
+            throw new BabyDBException("Failed to execute query", e);
+        }
+    }
+
+    private T get(CachedConnection conn, Map<String, ColumnValueProvider> keyProvider) throws SQLException {
         LinkedHashMap<String, ?> key = toKey(keyProvider);
-        return getSome(SqlGen.whereAll(key), key.keySet().stream().map(key::get).toArray(), false).get(0);
+        T hit = getCached(key, conn);
+        return hit != null ? hit : read(conn, key);
+    }
+
+    /**
+     * @param conn The connection to load the record's children on, or null to check one out
+     * @return A copy of the cached record for the primary key, or null if it isn't cached
+     */
+    private T getCached(LinkedHashMap<String, ?> key, CachedConnection conn) {
+        RecordCache<T> c = cache;
+        List<Object> cacheKey = c == null ? null : cacheKey(key);
+        return cacheKey == null ? null : c.get(cacheKey, conn);
+    }
+
+    /**
+     * The cache key for the column values, or null if they aren't one value for each primary key column
+     */
+    private List<Object> cacheKey(Map<String, ?> columnValues) {
+        List<String> keyColumns = keyFields.stream().map(f -> fieldNameToColName.get(f.getName())).collect(Collectors.toList());
+        if (!columnValues.keySet().equals(new HashSet<>(keyColumns))
+                || columnValues.values().stream().anyMatch(v -> v instanceof Collection)) {
+            return null;
+        }
+        return EntityCache.key(keyColumns.stream().map(columnValues::get).collect(Collectors.toList()));
+    }
+
+    /**
+     * Read the record for the primary key from the database, and cache it if it's being cached
+     */
+    private T read(CachedConnection conn, LinkedHashMap<String, ?> key) throws SQLException {
+        RecordCache<T> c = cache;
+        long stamp = c == null ? 0 : c.stamp();
+        T found = getSome(conn, readPlan(), SqlGen.whereAll(key), key.keySet().stream().map(key::get).toArray(), false).get(0);
+        if (c != null && found != null) {
+            c.put(EntityCache.key(keyValues(found)), found, stamp);
+        }
+        return found;
+    }
+
+    /**
+     * The plan for reading whole records
+     */
+    SelectPlan readPlan() {
+        return selectAll;
     }
 
     protected List<T> getSome(String where, Object[] values, boolean isMany) {
-        try (Connection conn = getConnection()) {
-            String sql = baseSql + Optional.ofNullable(where).orElse("");
-            PreparedStatement st = entityMapper.prepare(conn, sql, values);
-            st.execute();
-            return entityMapper.mapResultSet(st, isMany);
+        Replica<T> r = replica;
+        List<T> replicated = r == null || where != null ? null : r.all();
+        if (replicated != null) {
+            return mergeChunks(replicated, false, isMany);
+        }
+        return getSome(readPlan(), where, values, isMany);
+    }
+
+    List<T> getSome(SelectPlan plan, String where, Object[] values, boolean isMany) {
+        String sql = plan.baseSql + Optional.ofNullable(where).orElse("") + plan.suffix + (isMany ? "" : " --one");
+        return cached(sql, values, () -> {
+            try (CachedConnection conn = getCachedConnection()) {
+                return getSome(conn, plan, where, values, isMany);
+            } catch (SQLException e) {
+                throw new BabyDBException("Failed to execute query", e);
+            }
+        });
+    }
+
+    /**
+     * Get the records matching the column values, padding in lists to a handful of sizes and splitting up any that
+     * are too big for one query
+     *
+     * @param columnValues The column names and values to look up by, collections become in lists
+     * @param any          Whether to OR the columns together instead of AND
+     */
+    protected List<T> getSomeWhere(LinkedHashMap<String, ?> columnValues, boolean any, boolean isMany) {
+        Replica<T> r = replica;
+        List<T> replicated = r == null ? null : r.find(columnValues, any);
+        if (replicated != null) {
+            return mergeChunks(replicated, false, isMany);
+        }
+        if (!isMany && !any && cache != null && cacheKey(columnValues) != null) {
+            return Collections.singletonList(getByKey(columnValues));
+        }
+        return getSomeWhere(readPlan(), columnValues, any, isMany);
+    }
+
+    List<T> getSomeWhere(SelectPlan plan, LinkedHashMap<String, ?> columnValues, boolean any, boolean isMany) {
+        String sql = plan.baseSql + plan.suffix + " --where " + String.join(any ? " or " : " and ", columnValues.keySet())
+                + (isMany ? "" : " --one");
+        return cached(sql, columnValues.values().toArray(), () -> readSomeWhere(plan, columnValues, any, isMany));
+    }
+
+    private List<T> readSomeWhere(SelectPlan plan, LinkedHashMap<String, ?> columnValues, boolean any, boolean isMany) {
+        List<LinkedHashMap<String, Object>> chunks;
+        LoadContext context = new LoadContext();
+        try (CachedConnection conn = getCachedConnection()) {
+            chunks = splitInLists(conn, columnValues, any);
+            if (chunks.size() < 2 || !parallelInLists) {
+                return getChunks(conn, plan, chunks, any, isMany, context);
+            }
         } catch (SQLException e) {
             throw new BabyDBException("Failed to execute query", e);
         }
+        return mergeChunks(chunks.parallelStream()
+                        .flatMap(chunk -> {
+                            try (CachedConnection conn = getCachedConnection()) {
+                                return getSome(conn, plan, where(chunk, any), chunk.values().toArray(), true, context).stream();
+                            } catch (SQLException e) {
+                                throw new BabyDBException("Failed to execute query", e);
+                            }
+                        })
+                        .collect(Collectors.toList()),
+                any && plan.hasKey, isMany);
+    }
+
+    /**
+     * Get the records matching the column values on the given connection, as part of a bigger object graph.
+     * Big in lists are split up and run one after the other.
+     */
+    List<T> getSomeWhere(CachedConnection conn, SelectPlan plan, LinkedHashMap<String, ?> columnValues, boolean any, boolean isMany,
+                         LoadContext context) throws SQLException {
+        return getChunks(conn, plan, splitInLists(conn, columnValues, any), any, isMany, context);
+    }
+
+    private List<T> getChunks(CachedConnection conn, SelectPlan plan, List<LinkedHashMap<String, Object>> chunks, boolean any, boolean isMany,
+                              LoadContext context) throws SQLException {
+        if (chunks.size() == 1) {
+            return getSome(conn, plan, where(chunks.get(0), any), chunks.get(0).values().toArray(), isMany, context);
+        } else if (chunks.isEmpty()) {
+            return isMany ? new ArrayList<>() : Collections.singletonList(null);
+        }
+        List<T> found = new ArrayList<>();
+        for (LinkedHashMap<String, Object> chunk : chunks) {
+            found.addAll(getSome(conn, plan, where(chunk, any), chunk.values().toArray(), true, context));
+        }
+        return mergeChunks(found, any && plan.hasKey, isMany);
+    }
+
+    /**
+     * Get the records that have any of the values for the field, using the records the load context already has and
+     * reading the rest as part of the same graph. Each value can only belong to one record.
+     *
+     * @param conn The connection the rest of the graph is being read on, or null to check one out
+     * @return The records by their value for the field
+     */
+    @SuppressWarnings("unchecked")
+    Map<Object, T> loadBy(CachedConnection conn, String fieldName, Collection<?> values, LoadContext context) {
+        Field field = resolveField(fieldName);
+        RecordCache<T> c = cache;
+        boolean byKey = c != null && keyFields.size() == 1 && keyFields.get(0).equals(field);
+        Map<Object, T> found = new HashMap<>(values.size() * 2);
+        List<Object> missing = new ArrayList<>();
+        for (Object value : values) {
+            T known = (T) context.get(entityType, field.getName(), value);
+            if (known == null && byKey) {
+                known = c.get(EntityCache.key(Collections.singletonList(value)), conn);
+                if (known != null) {
+                    known = (T) context.remember(entityType, field.getName(), value, known);
+                }
+            }
+            if (known == null) {
+                missing.add(value);
+            } else {
+                found.put(value, known);
+            }
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+        long stamp = c == null ? 0 : c.stamp();
+        LinkedHashMap<String, Object> where = new LinkedHashMap<>(1);
+        where.put(fieldNameToColName.get(field.getName()), missing);
+        Replica<T> r = replica;
+        List<T> read = r == null ? null : r.find(where, false);
+        if (read == null) {
+            read = readBy(conn, where, context);
+        }
+        for (T record : read) {
+            Object value = entityAccessor.get(field, record);
+            if (context.remember(entityType, field.getName(), value, record) != record) {
+                throw new BabyDBException("Multiple rows found for single row query, " + field.getName() + " doesn't uniquely identify a "
+                        + entityType.getSimpleName());
+            }
+            if (c != null) {
+                c.put(EntityCache.key(keyValues(record)), record, stamp);
+            }
+            found.put(value, record);
+        }
+        return found;
+    }
+
+    private List<T> readBy(CachedConnection conn, LinkedHashMap<String, Object> where, LoadContext context) {
+        if (conn != null) {
+            try {
+                return getSomeWhere(conn, readPlan(), where, false, true, context);
+            } catch (SQLException e) {
+                throw new BabyDBException("Failed to execute query", e);
+            }
+        }
+        try (CachedConnection own = getCachedConnection()) {
+            return getSomeWhere(own, readPlan(), where, false, true, context);
+        } catch (SQLException e) {
+            throw new BabyDBException("Failed to execute query", e);
+        }
+    }
+
+    protected Stream<T> streamSome(String where, Object[] values) {
+        return stream(getCachedConnection(), baseSql + Optional.ofNullable(where).orElse(""), values);
+    }
+
+    /**
+     * Stream the records matching the column values. See {@link #getSomeWhere(LinkedHashMap, boolean, boolean)}.
+     * In lists that have to be split up are streamed one chunk after the other, each on its own connection.
+     */
+    protected Stream<T> streamSomeWhere(LinkedHashMap<String, ?> columnValues, boolean any) {
+        CachedConnection conn = getCachedConnection();
+        List<LinkedHashMap<String, Object>> chunks;
+        try {
+            chunks = splitInLists(conn, columnValues, any);
+            if (chunks.size() == 1) {
+                return stream(conn, baseSql + where(chunks.get(0), any), chunks.get(0).values().toArray());
+            }
+            conn.close();
+        } catch (SQLException | RuntimeException e) {
+            closeAfterFailure(conn, e);
+            throw new BabyDBException("Failed to execute query", e);
+        }
+        Stream<T> streamed = chunks.stream()
+                .flatMap(chunk -> stream(getCachedConnection(), baseSql + where(chunk, any), chunk.values().toArray()));
+        if (any && !keyFields.isEmpty()) {
+            //only the keys are remembered, not the records
+            Set<List<Object>> seen = new HashSet<>();
+            streamed = streamed.filter(t -> seen.add(keyValues(t)));
+        }
+        return streamed;
+    }
+
+    /**
+     * Stream the result of the sql on the connection, the connection is closed along with the stream.
+     * Children are loaded on the same connection, unless the driver can't do that in the middle of a result.
+     */
+    private Stream<T> stream(CachedConnection conn, String sql, Object[] values) {
+        try {
+            PreparedStatement st = entityMapper.prepare(conn, sql, false, values);
+            conn.useCursor(st, fetchSize);
+            return entityMapper.streamResultSet(sql, st.executeQuery(), fetchSize, childConnection(conn), conn);
+        } catch (SQLException | RuntimeException e) {
+            closeAfterFailure(conn, e);
+            throw new BabyDBException("Failed to execute sql: " + sql, e);
+        }
+    }
+
+    /**
+     * The connection to load children on while a result is streamed on this one, null if it has to be another one
+     */
+    private static CachedConnection childConnection(CachedConnection conn) throws SQLException {
+        return conn.getDialect().cursorBlocksConnection() ? null : conn;
+    }
+
+    private static void closeAfterFailure(CachedConnection conn, Exception e) {
+        try {
+            conn.close();
+        } catch (SQLException closeFailure) {
+            e.addSuppressed(closeFailure);
+        }
+    }
+
+    private List<Object> keyValues(T record) {
+        return keyFields.stream().map(f -> entityAccessor.get(f, record)).collect(Collectors.toList());
+    }
+
+    /**
+     * Chunks of an ANY query can find the same record more than once, so those are de-duplicated by primary key,
+     * as long as the key was selected
+     */
+    private List<T> mergeChunks(List<T> found, boolean dedupe, boolean isMany) {
+        if (dedupe && !keyFields.isEmpty()) {
+            Map<List<Object>, T> byKey = new LinkedHashMap<>(found.size());
+            found.forEach(t -> byKey.putIfAbsent(keyValues(t), t));
+            found = new ArrayList<>(byKey.values());
+        }
+        if (isMany) {
+            return found;
+        } else if (found.size() > 1) {
+            throw new BabyDBException("Multiple rows found for single row query");
+        }
+        return found.isEmpty() ? Collections.singletonList(null) : found;
+    }
+
+    private List<LinkedHashMap<String, Object>> splitInLists(CachedConnection conn, Map<String, ?> columnValues, boolean any) throws SQLException {
+        Dialect dialect = conn.getDialect();
+        return InLists.split(
+                columnValues,
+                any,
+                maxInListSize == null ? dialect.getMaxInListSize() : maxInListSize,
+                dialect.getMaxBindVariables());
+    }
+
+    private static String where(LinkedHashMap<String, ?> columnValues, boolean any) {
+        if (columnValues.isEmpty()) {
+            return "";
+        }
+        return any ? SqlGen.whereAny(columnValues) : SqlGen.whereAll(columnValues);
+    }
+
+    /**
+     * Count the records matching the column values, without reading any of them
+     *
+     * @param columnValues The column names and values to count by, collections become in lists. Empty counts everything.
+     * @param any          Whether to OR the columns together instead of AND
+     */
+    protected long countWhere(LinkedHashMap<String, ?> columnValues, boolean any) {
+        try (CachedConnection conn = getCachedConnection()) {
+            List<LinkedHashMap<String, Object>> chunks = splitInLists(conn, columnValues, any);
+            if (!any || chunks.size() < 2) {
+                long count = 0;
+                for (LinkedHashMap<String, Object> chunk : chunks) {
+                    PreparedStatement st = entityMapper.prepare(conn, countSql + where(chunk, any), false, chunk.values().toArray());
+                    try (ResultSet rs = st.executeQuery()) {
+                        rs.next();
+                        count += rs.getLong(1);
+                    }
+                }
+                return count;
+            }
+        } catch (SQLException e) {
+            throw new BabyDBException("Count failed", e);
+        }
+        //the chunks of an ANY overlap, so the matching keys have to be read to count each record only once
+        return getSomeWhere(keyOnlyPlan("count"), columnValues, true, true).size();
+    }
+
+    /**
+     * Check whether any record matches the column values, stopping at the first one found
+     *
+     * @param columnValues The column names and values to look for, collections become in lists. Empty checks for anything.
+     * @param any          Whether to OR the columns together instead of AND
+     */
+    protected boolean existsWhere(LinkedHashMap<String, ?> columnValues, boolean any) {
+        try (CachedConnection conn = getCachedConnection()) {
+            for (LinkedHashMap<String, Object> chunk : splitInLists(conn, columnValues, any)) {
+                PreparedStatement st = entityMapper.prepare(conn, existsSql + where(chunk, any), false, chunk.values().toArray());
+                st.setMaxRows(1);
+                try (ResultSet rs = st.executeQuery()) {
+                    if (rs.next()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } catch (SQLException e) {
+            throw new BabyDBException("Exists check failed", e);
+        }
+    }
+
+    /**
+     * Aggregate a column over the records matching the column values, without reading any of them
+     *
+     * @param aggregate    The aggregate function
+     * @param column       The field or column name to aggregate, its field has to be a number
+     * @param columnValues The column names and values to filter by, collections become in lists. Empty aggregates everything.
+     * @param any          Whether to OR the columns together instead of AND
+     * @return The aggregate, or empty if no non null values matched. See {@link Aggregate} for what kind of number it is.
+     */
+    protected Optional<Number> aggregateWhere(Aggregate aggregate, String column, LinkedHashMap<String, ?> columnValues, boolean any) {
+        Objects.requireNonNull(aggregate, "Which aggregate?");
+        Field field = resolveField(column);
+        Class<?> type = field.getType();
+        if (!Number.class.isAssignableFrom(type) && !(type.isPrimitive() && type != boolean.class && type != char.class)) {
+            throw new BabyDBException("Aggregates are only for numbers, " + entityType.getCanonicalName() + "#" + field.getName()
+                    + " is a " + type.getSimpleName());
+        }
+        String columnName = fieldNameToColName.get(field.getName());
+        String aggregateSql = SqlGen.select(tableFullName, Collections.singletonList(aggregate.selectList(columnName)));
+        try (CachedConnection conn = getCachedConnection()) {
+            List<LinkedHashMap<String, Object>> chunks = splitInLists(conn, columnValues, any);
+            if (any && chunks.size() > 1) {
+                throw new BabyDBException("Can't aggregate over an ANY with an in list that has to be split into " +
+                        chunks.size() + " queries, the chunks would count some records more than once");
+            }
+            BigDecimal total = null;
+            long count = 0;
+            for (LinkedHashMap<String, Object> chunk : chunks) {
+                PreparedStatement st = entityMapper.prepare(conn, aggregateSql + where(chunk, any), false, chunk.values().toArray());
+                try (ResultSet rs = st.executeQuery()) {
+                    rs.next();
+                    total = aggregate.combine(total, rs.getBigDecimal(1));
+                    if (aggregate == Aggregate.AVG) {
+                        count += rs.getLong(2);
+                    }
+                }
+            }
+            return total == null ? Optional.empty() : Optional.of(aggregate.result(total, count, type));
+        } catch (SQLException e) {
+            throw new BabyDBException("Aggregate failed", e);
+        }
+    }
+
+    private SelectPlan keyOnlyPlan(String forWhat) {
+        if (keyFields.isEmpty()) {
+            throw new BabyDBException("Can't " + forWhat + " over an ANY with an in list that has to be split up, because " +
+                    entityType.getCanonicalName() + " has no primary key to tell the records apart");
+        }
+        return selectPlan(keyFields.stream().map(Field::getName).collect(Collectors.toList()));
+    }
+
+    List<T> getSome(CachedConnection conn, String where, Object[] values, boolean isMany) throws SQLException {
+        return getSome(conn, selectAll, where, values, isMany);
+    }
+
+    List<T> getSome(CachedConnection conn, SelectPlan plan, String where, Object[] values, boolean isMany) throws SQLException {
+        return getSome(conn, plan, where, values, isMany, new LoadContext());
+    }
+
+    private List<T> getSome(CachedConnection conn, SelectPlan plan, String where, Object[] values, boolean isMany, LoadContext context) throws SQLException {
+        String sql = plan.baseSql + Optional.ofNullable(where).orElse("") + plan.suffix;
+        PreparedStatement st = entityMapper.prepare(conn, sql, false, values);
+        st.execute();
+        return entityMapper.mapResultSet(conn, plan.selection, sql, st, isMany, context);
     }
 
     /**
@@ -274,10 +1138,54 @@ public abstract class CoreRepo<T> {
      * @return The found entities
      */
     public List<T> execute(String sql, Object... bindVariables) {
-        try (Connection conn = getConnection()) {
-            PreparedStatement st = entityMapper.prepare(conn, sql, bindVariables);
-            st.execute();
-            return entityMapper.mapResultSet(st, true);
+        return cached(sql, bindVariables, () -> {
+            try (CachedConnection conn = getCachedConnection()) {
+                PreparedStatement st = entityMapper.prepare(conn, sql, false, bindVariables);
+                st.execute();
+                return entityMapper.mapResultSet(conn, selectAll.selection, sql, st, true, new LoadContext());
+            } catch (SQLException e) {
+                throw new BabyDBException("Failed to execute sql: " + sql, e);
+            }
+        });
+    }
+
+    /**
+     * Execute an arbitrary sql statement and stream the entities as they're read, instead of reading them all into
+     * memory first. The driver fetches {@link #setFetchSize(int) fetch size} rows at a time.
+     * <p>
+     * The stream holds on to a connection until it's closed, so use try with resources. It's also closed once the last
+     * row is read. Children are loaded on the same connection, except on MySQL, which can't run anything else on a
+     * connection until a streamed result is read all the way through, so there each load checks out another one.
+     *
+     * @param sql           The sql to execute
+     * @param bindVariables Bind variables, if any
+     * @return The entities, as they're read
+     */
+    public Stream<T> streamExecute(String sql, Object... bindVariables) {
+        return stream(getCachedConnection(), sql, bindVariables);
+    }
+
+    /**
+     * Execute an arbitrary sql statement and hand each row to the action as it's read, using the same entity
+     * instance for every row. This is for looking at a lot of rows once without making garbage out of each one.
+     * <p>
+     * The instance is overwritten by the next row as soon as the action returns, so the action MUST copy anything it
+     * wants to keep. Don't put it in a collection, don't hand it to another thread. Joined entities are still
+     * looked up and created per row, on the same connection, except on MySQL, which can't run anything else on a
+     * connection until a streamed result is read all the way through, so there each load checks out another one.
+     *
+     * @param sql           The sql to execute
+     * @param action        What to do with each row
+     * @param bindVariables Bind variables, if any
+     */
+    public void forEachRow(String sql, Consumer<? super T> action, Object... bindVariables) {
+        Objects.requireNonNull(action, "Can't do nothing for each row");
+        try (CachedConnection conn = getCachedConnection()) {
+            PreparedStatement st = entityMapper.prepare(conn, sql, false, bindVariables);
+            conn.useCursor(st, fetchSize);
+            try (ResultSet rs = st.executeQuery()) {
+                entityMapper.forEachRow(sql, rs, childConnection(conn), action);
+            }
         } catch (SQLException e) {
             throw new BabyDBException("Failed to execute sql: " + sql, e);
         }
@@ -299,24 +1207,222 @@ public abstract class CoreRepo<T> {
                     "Either add the @PK annotation to one or more fields on the entity or add the appropriate constraint" +
                     " to the database.");
         }
-        try (Connection conn = getConnection()) {
+        try (CachedConnection conn = getCachedConnection()) {
+            conn.wrote(tableFullName);
             LinkedHashMap<String, Object> key = new LinkedHashMap<>(keyFields.size());
             keyFields.forEach(f -> {
-                Object val = getSafe(f, record);
+                Object val = entityAccessor.get(f, record);
                 if (val == null) {
                     throw new BabyDBException("Cannot perform an update on an entity when provided a null key. Make sure your keyfield");
                 }
                 key.put(f.getName(), val);
             });
             String sql = updateSql + SqlGen.whereAll(key);
-            PreparedStatement st = entityMapper.prepare(conn, sql, Stream.concat(nonKeyFields.stream().map(f -> getSafe(f, record)), key.values().stream()).toArray());
-            st.executeUpdate();
-            return st.getUpdateCount() == 0 ? null : get(key.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> e::getValue)));
+            int count = conn.inTransaction(() -> {
+                int updated = entityMapper.prepareForEntity(conn, sql, false, record, nonKeyFields, key.values().toArray()).executeUpdate();
+                if (updated > 0) {
+                    writeLinks(conn, Collections.singletonList(record), null);
+                }
+                return updated;
+            });
+            evict(Collections.singletonList(record));
+            return count == 0 ? null : get(conn, key.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> e::getValue)));
         } catch (SQLException e) {
             throw new BabyDBException("Update failed", e);
         }
     }
 
+    /**
+     * Update all of the records by their primary keys using jdbc batches (see {@link #setBatchSize(int)}), all in one
+     * transaction. Nothing is cascaded and nothing is re-fetched.
+     *
+     * @param records The records to update
+     * @return The update count for each record, in the same order. Some drivers only report
+     * {@link Statement#SUCCESS_NO_INFO} for batched statements.
+     */
+    public int[] updateAll(Collection<T> records) {
+        if (keyFields.isEmpty()) {
+            throw new BabyDBException("Updates are not allowed because your entity does not have a primary key. " +
+                    "Either add the @PK annotation to one or more fields on the entity or add the appropriate constraint" +
+                    " to the database.");
+        }
+        List<Field> toBind = new ArrayList<>(nonKeyFields);
+        toBind.addAll(keyFields);
+        return executeBatches(records, updateSql + keyWhere(), toBind, false, "Update failed");
+    }
+
+    /**
+     * Delete all of the records by their primary keys using jdbc batches (see {@link #setBatchSize(int)}), all in one
+     * transaction. Entities without a primary key are deleted by all of their non null columns, one statement each.
+     *
+     * @param records The records to delete
+     * @return The delete count for each record, in the same order. Some drivers only report
+     * {@link Statement#SUCCESS_NO_INFO} for batched statements.
+     */
+    public int[] deleteAll(Collection<T> records) {
+        if (keyFields.isEmpty()) {
+            Objects.requireNonNull(records, "Can't delete a null collection of records");
+            try (CachedConnection conn = getCachedConnection()) {
+                conn.wrote(tableFullName);
+                return conn.inTransaction(() -> {
+                    unlink(conn, records);
+                    int[] counts = new int[records.size()];
+                    int i = 0;
+                    for (T record : records) {
+                        Objects.requireNonNull(record, "Can't delete a null record");
+                        LinkedHashMap<String, ?> where = keysToColumnNames(fieldValueMap(fields, record));
+                        counts[i++] = where.isEmpty() ? 0 : entityMapper.prepare(conn, deleteSql + SqlGen.whereAll(where), false, where.values().toArray()).executeUpdate();
+                    }
+                    return counts;
+                });
+            } catch (SQLException e) {
+                throw new BabyDBException("Delete failed", e);
+            }
+        }
+        return executeBatches(records, deleteSql + keyWhere(), keyFields, true, "Delete failed");
+    }
+
+    private String keyWhere() {
+        LinkedHashMap<String, Object> key = new LinkedHashMap<>(keyFields.size());
+        keyFields.forEach(f -> key.put(fieldNameToColName.get(f.getName()), null));
+        return SqlGen.whereAll(key);
+    }
+
+    /**
+     * Run the sql once per record as jdbc batches in a single transaction, along with the join table rows
+     *
+     * @param deleting Whether the records are being deleted, so their join table rows go first, instead of being
+     *                 brought up to date afterwards
+     */
+    private int[] executeBatches(Collection<T> records, String sql, List<Field> toBind, boolean deleting, String failureMessage) {
+        Objects.requireNonNull(records, "Can't use a null collection of records");
+        try (CachedConnection conn = getCachedConnection()) {
+            conn.wrote(tableFullName);
+            int[] changed = conn.inTransaction(() -> {
+                if (deleting) {
+                    unlink(conn, records);
+                }
+                int[] counts = new int[records.size()];
+                int done = 0, batched = 0;
+                PreparedStatement st = conn.prepare(sql, false);
+                for (T record : records) {
+                    Objects.requireNonNull(record, "Can't use a null record");
+                    if (keyFields.stream().anyMatch(f -> entityAccessor.get(f, record) == null)) {
+                        throw new BabyDBException("Cannot perform an update or delete on an entity with a null key. Make sure your key fields are set.");
+                    }
+                    entityMapper.bindEntity(st, record, toBind).addBatch();
+                    if (++batched == batchSize) {
+                        done = copyCounts(st.executeBatch(), counts, done);
+                        batched = 0;
+                    }
+                }
+                if (batched > 0) {
+                    copyCounts(st.executeBatch(), counts, done);
+                }
+                if (!deleting) {
+                    writeLinks(conn, records, null);
+                }
+                return counts;
+            });
+            evict(records);
+            return changed;
+        } catch (SQLException e) {
+            throw new BabyDBException(failureMessage, e);
+        }
+    }
+
+    /**
+     * Drop the records from the cache, and read them into the replica again, after they've been changed
+     */
+    private void evict(Collection<T> records) {
+        evictKeys(records.stream().map(r -> EntityCache.key(keyValues(r))).collect(Collectors.toList()));
+    }
+
+    /**
+     * Drop whatever records a where clause could have changed from the cache, and read them into the replica again.
+     * Only a where on the primary key says which records those are, anything else does the whole thing.
+     */
+    private void evictWhere(Map<String, ?> columnValues, boolean any) {
+        if (cache == null && replica == null) {
+            return;
+        }
+        List<String> keyColumns = keyFields.stream().map(f -> fieldNameToColName.get(f.getName())).collect(Collectors.toList());
+        if (keyColumns.size() == 1 && columnValues.size() == 1 && columnValues.containsKey(keyColumns.get(0))) {
+            Object value = columnValues.get(keyColumns.get(0));
+            evictKeys((value instanceof Collection ? (Collection<?>) value : Collections.singletonList(value)).stream()
+                    .map(key -> EntityCache.key(Collections.singletonList(key)))
+                    .collect(Collectors.toList()));
+        } else if (!any && columnValues.keySet().equals(new HashSet<>(keyColumns))
+                && columnValues.values().stream().noneMatch(v -> v instanceof Collection)) {
+            evictKeys(Collections.singletonList(EntityCache.key(keyColumns.stream().map(columnValues::get).collect(Collectors.toList()))));
+        } else {
+            evictKeys(null);
+        }
+    }
+
+    /**
+     * @param keys The cache keys that were written, null if it could have been any of them
+     */
+    private void evictKeys(List<List<Object>> keys) {
+        RecordCache<T> c = cache;
+        if (c != null && keys == null) {
+            c.clear();
+        } else if (c != null) {
+            keys.forEach(c::invalidate);
+        }
+        refreshReplica(keys);
+    }
+
+    /**
+     * Read what was written into the replica, if there is one. The write already happened, so if that fails the
+     * replica steps aside until the next refresh instead of failing the write.
+     *
+     * @param keys The cache keys that were written, null if it could have been any of them
+     */
+    private void refreshReplica(List<List<Object>> keys) {
+        Replica<T> r = replica;
+        if (r == null) {
+            return;
+        }
+        try {
+            r.changed(keys);
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to refresh the replica of " + tableFullName + ", reading from the database until the next refresh", e);
+        }
+    }
+
+    /**
+     * Bring the join table rows up to date with the {@link JoinTable} fields of the records
+     *
+     * @param generatedKey The key the database generated for the record, if it wasn't set on the record
+     */
+    private void writeLinks(CachedConnection conn, Collection<T> records, Map<String, ColumnValueProvider> generatedKey) throws SQLException {
+        for (JoinTableLink<T> link : links) {
+            String thisField = link.getThisField().getName();
+            link.write(conn, records, r -> {
+                Object key = entityAccessor.get(link.getThisField(), r);
+                return key == null && generatedKey != null && generatedKey.containsKey(thisField) ? generatedKey.get(thisField).value() : key;
+            });
+        }
+    }
+
+    private void unlink(CachedConnection conn, Collection<T> records) throws SQLException {
+        for (JoinTableLink<T> link : links) {
+            link.unlink(conn, records);
+        }
+    }
+
+    private void unlinkWhere(CachedConnection conn, String where, Object[] values) throws SQLException {
+        for (JoinTableLink<T> link : links) {
+            link.unlinkWhere(conn, where, values);
+        }
+    }
+
+    private static int copyCounts(int[] batchCounts, int[] counts, int offset) {
+        System.arraycopy(batchCounts, 0, counts, offset, batchCounts.length);
+        return offset + batchCounts.length;
+    }
+
     /**
      * perform an arbitrary update on the database.
      *
@@ -325,15 +1431,19 @@ public abstract class CoreRepo<T> {
      * @return The count of records that were updated
      */
     public int updateMany(Map<String, ?> fieldsToUpdate, Map<String, ?> whereFields) {
-        try (Connection conn = getConnection()) {
-            LinkedHashMap<String, ?> key = new LinkedHashMap<>(whereFields);
-            String updateSql = SqlGen.update(tableFullName, new ArrayList<>(key.keySet())) + SqlGen.whereAll(key);
-            PreparedStatement st = entityMapper.prepare(conn, updateSql, key.values().toArray());
-            st.executeUpdate();
-            if (!conn.getAutoCommit()) {
-                conn.commit();
-            }
-            return st.getUpdateCount();
+        try (CachedConnection conn = getCachedConnection()) {
+            conn.wrote(tableFullName);
+            LinkedHashMap<String, ?> set = keysToColumnNames(fieldsToUpdate);
+            LinkedHashMap<String, ?> key = keysToColumnNames(whereFields);
+            String updateSql = SqlGen.update(tableFullName, new ArrayList<>(set.keySet())) + SqlGen.whereAll(key);
+            List<Object> binds = new ArrayList<>(set.size() + key.size());
+            binds.addAll(set.values());
+            binds.addAll(key.values());
+            PreparedStatement st = entityMapper.prepare(conn, updateSql, false, binds.toArray());
+            int count = st.executeUpdate();
+            conn.commit();
+            evictWhere(key, false);
+            return count;
         } catch (SQLException e) {
             throw new BabyDBException("Update failed", e);
         }
@@ -348,7 +1458,8 @@ public abstract class CoreRepo<T> {
      * then this will be
      */
     public Optional<Object> insertByValues(Map<String, Object> columnValues) {
-        try (Connection conn = getConnection()) {
+        try (CachedConnection conn = getCachedConnection()) {
+            conn.wrote(tableFullName);
             columnValues = columnValues instanceof LinkedHashMap ? columnValues : new LinkedHashMap<>(columnValues);
             List<String> columnNames = columnValues.keySet().stream()
                     .map(k -> colNameToFieldName.containsKey(k.toUpperCase()) ? k.toUpperCase() : fieldNameToColName.get(k))
@@ -357,19 +1468,24 @@ public abstract class CoreRepo<T> {
             PreparedStatement st = entityMapper.prepare(
                     conn,
                     insert,
+                    true,
                     columnValues.keySet().stream().map(columnValues::get).toArray());
             st.executeUpdate();
             ResultSet keys = st.getGeneratedKeys();
+            Optional<Object> generated = Optional.empty();
             if (databaseGeneratedField != null) {
                 if (keys.next()) {
-                    return Optional.of(entityMapper.getResultValueByPosition(databaseGeneratedField, keys, 1));
+                    generated = Optional.of(entityMapper.getResultValueByPosition(databaseGeneratedField, keys, 1));
                 } else {
                     throw new BabyDBException("No generated value was returned for field " +
                             entityType.getCanonicalName() + "#" + databaseGeneratedField.getName());
                 }
-            } else {
-                return Optional.empty();
             }
+            conn.commit();
+            refreshReplica(generated.isPresent() && keyFields.equals(Collections.singletonList(databaseGeneratedField))
+                    ? Collections.singletonList(EntityCache.key(Collections.singletonList(generated.get())))
+                    : null);
+            return generated;
         } catch (SQLException e) {
             throw new BabyDBException("InsertByValues failed!", e);
         }
@@ -385,89 +1501,220 @@ public abstract class CoreRepo<T> {
         Objects.requireNonNull(record, "Can't save a null record");
         Map<String, ?> keyValue = fieldValueMap(keyFields, record);
         boolean hasKey = keyValue != null && keyValue.size() > 0;
-        final Map<String, ColumnValueProvider> lookupKeyProvider;
 
-        try (Connection conn = getConnection()) {
-            final Map<String, Object> generatedValues = new HashMap<>();
-            if (!columnValueProviders.isEmpty()) {
-                columnValueProviders.forEach((k, v)->{
-                    if(getSafe(k, record) == null){
-                        Object generatedValue = v.value();
-                        generatedValues.put(k.getName(), generatedValue);
-                        setSafe(k, record, generatedValue);
-                    }
-                });
-            }
+        try (CachedConnection conn = getCachedConnection()) {
+            conn.wrote(tableFullName);
+            final Map<String, Object> generatedValues = generateColumnValues(record);
 
-            PreparedStatement st = entityMapper.prepare(
-                    conn,
-                    hasKey || !isAutoGen ? insertSql : insertSqlNoKey,
-                    getColumnValues(record, hasKey || !isAutoGen ? fields : nonKeyFields).toArray());
-            st.executeUpdate();
+            //the row and its join table rows go in together, or not at all
+            Map<String, ColumnValueProvider> lookupKeyProvider = conn.inTransaction(() -> {
+                final Map<String, ColumnValueProvider> provider;
+                PreparedStatement st = entityMapper.prepareForEntity(
+                        conn,
+                        hasKey || !isAutoGen ? insertSql : insertSqlNoKey,
+                        true,
+                        record,
+                        hasKey || !isAutoGen ? fields : nonKeyFields);
+                st.executeUpdate();
 
-            if (!hasKey && isAutoGen) {
-                ResultSet keys = st.getGeneratedKeys();
-                if (!keys.next()) {
-                    throw new BabyDBException("No key was returned from the db on insert for " + entityType.getCanonicalName());
+                if (!hasKey && isAutoGen) {
+                    ResultSet keys = st.getGeneratedKeys();
+                    if (!keys.next()) {
+                        throw new BabyDBException("No key was returned from the db on insert for " + entityType.getCanonicalName());
 
+                    }
+                    provider = keyFields.stream().collect(
+                            Collectors.toMap(
+                                    Field::getName,
+                                    f -> {
+                                        //this is not inline to guarantee the keys resultset is open
+                                        Object r = entityMapper.getResultValueByPosition(f, keys, 1);
+                                        return () -> r;
+                                    })
+                    );
+                } else if (!keyFields.isEmpty()) {
+                    provider = keyFields.stream().collect(Collectors.toMap(Field::getName, f -> {
+                        Object value = generatedValues.getOrDefault(f.getName(), entityAccessor.get(f, record));
+                        return ()->value;
+                    }));
+                } else {
+                    provider = null;
                 }
-                lookupKeyProvider = keyFields.stream().collect(
-                        Collectors.toMap(
-                                Field::getName,
-                                f -> {
-                                    //this is not inline to guarantee the keys resultset is open
-                                    Object r = entityMapper.getResultValueByPosition(f, keys, 1);
-                                    return () -> r;
-                                })
-                );
-            } else if (!keyFields.isEmpty()) {
-                lookupKeyProvider = keyFields.stream().collect(Collectors.toMap(Field::getName, f -> {
-                    Object value = generatedValues.getOrDefault(f.getName(), getSafe(f, record));
-                    return ()->value;
-                }));
-            } else {
-                lookupKeyProvider = null;
+                writeLinks(conn, Collections.singletonList(record), provider);
+                return provider;
+            });
+            if (lookupKeyProvider != null) {
+                evictWhere(toKey(lookupKeyProvider), false);
             }
-            if (!conn.getAutoCommit()) {
-                conn.commit();
+            if(lookupKeyProvider == null){
+                logger.warning("Because no primary key fields are configured on the class and there is not a primary" +
+                        " key constraint on the entity: "+ entityType.getCanonicalName()+" the record that was being inserted" +
+                        " is being returned without first re-fetching the record from the database. This means you will miss" +
+                        " any data that changed due to triggers firing on insert in the database.");
             }
+            return lookupKeyProvider == null ? record : get(conn, lookupKeyProvider);
         } catch (SQLException e) {
             throw new BabyDBException("Insert failed", e);
         }
-        if(lookupKeyProvider == null){
-            logger.warning("Because no primary key fields are configured on the class and there is not a primary" +
-                    " key constraint on the entity: "+ entityType.getCanonicalName()+" the record that was being inserted" +
-                    " is being returned without first re-fetching the record from the database. This means you will miss" +
-                    " any data that changed due to triggers firing on insert in the database.");
-        }
-        return lookupKeyProvider == null ? record : get(lookupKeyProvider);
-    }
-
-    private List<Object> getColumnValues(Object entity, List<Field> fields) {
-        List<Object> values = new ArrayList<>(fields.size());
-        for (Field f : fields) {
-            if (EntityMapper.isSupportedSqlType(f.getType())) {
-                values.add(EntityReflectingUtils.getSafe(f, entity));
-            } else if (!isTransient(f)) {
-                JoinTo joinTo = f.getAnnotation(JoinTo.class);
-                if (joinTo == null) {
-                    throw new BabyDBException("You must specify the column to join to using the JoinTo annotation, " +
-                            "or add the transient modify on the field: " + f.getDeclaringClass().getCanonicalName() + "#" + f.getName());
+    }
+
+    /**
+     * Insert all of the records using jdbc batches, committing after each batch. See {@link #setBatchSize(int)}.
+     * The records are not re-fetched, but any generated values, including the database generated key, are set on
+     * the records that were passed in.
+     *
+     * @param records The records to insert
+     * @return The same records, in the same order
+     */
+    public List<T> insertAll(Collection<T> records) {
+        return insertAll(records, false);
+    }
+
+    /**
+     * Insert all of the records using jdbc batches, committing after each batch. See {@link #setBatchSize(int)}.
+     * Any generated values, including the database generated key, are set on the records that were passed in.
+     * If a batch fails, the batches before it stay inserted, and nothing from the failed batch is, including the
+     * keys that were set on its records.
+     * <p>
+     * Not every driver hands back the generated keys for a whole batch, for those the rows that need a key from the
+     * database are inserted one at a time on the same statement instead, still in one transaction per batch.
+     *
+     * @param records The records to insert
+     * @param refetch Whether to read the records back from the database after inserting them, to pick up anything
+     *                triggers or defaults changed
+     * @return The inserted records, in the same order
+     */
+    public List<T> insertAll(Collection<T> records, boolean refetch) {
+        Objects.requireNonNull(records, "Can't insert a null collection of records");
+        try (CachedConnection conn = getCachedConnection()) {
+            conn.wrote(tableFullName);
+            boolean batchKeys = conn.getDialect().supportsBatchGeneratedKeys();
+            List<T> batch = new ArrayList<>(Math.min(batchSize, records.size()));
+            List<T> inserted = new ArrayList<>(records.size());
+            boolean batchNeedsKey = false;
+            try {
+                for (T record : records) {
+                    Objects.requireNonNull(record, "Can't save a null record");
+                    generateColumnValues(record);
+                    boolean needsKey = isAutoGen && keyFields.stream().allMatch(f -> entityAccessor.get(f, record) == null);
+                    if (!batch.isEmpty() && (needsKey != batchNeedsKey || batch.size() >= batchSize)) {
+                        insertBatch(conn, batch, batchNeedsKey, batchKeys);
+                        inserted.addAll(batch);
+                        batch.clear();
+                    }
+                    batchNeedsKey = needsKey;
+                    batch.add(record);
+                }
+                if (!batch.isEmpty()) {
+                    insertBatch(conn, batch, batchNeedsKey, batchKeys);
+                    inserted.addAll(batch);
                 }
-                String ref = joinTo.value();
-                Object child = EntityReflectingUtils.getSafe(f, entity);
-                if (child == null) {
-                    values.add(null);
+            } finally {
+                //the batches that made it in are committed, even if a later one failed
+                evict(inserted);
+            }
+        } catch (SQLException e) {
+            throw new BabyDBException("Insert failed", e);
+        }
+        return refetch ? refetchAll(records) : new ArrayList<>(records);
+    }
+
+    /**
+     * Insert the batch and its join table rows in one transaction. If it fails, the keys the database handed out
+     * for the batch are taken back off the records, since the rows they pointed at were rolled back.
+     */
+    private void insertBatch(CachedConnection conn, List<T> batch, boolean needsKey, boolean batchKeys) throws SQLException {
+        String sql = needsKey ? insertSqlNoKey : insertSql;
+        List<Field> toBind = needsKey ? nonKeyFields : fields;
+        try {
+            conn.inTransaction(() -> {
+                if (needsKey && !batchKeys) {
+                    for (T record : batch) {
+                        PreparedStatement st = entityMapper.prepareForEntity(conn, sql, true, record, toBind);
+                        st.executeUpdate();
+                        setGeneratedKey(st.getGeneratedKeys(), record);
+                    }
                 } else {
-                    BabyRepo<?> childRepo = BabyRepo.forType(f.getType());
-                    String fieldName = childRepo.colNameToFieldName.getOrDefault(ref.toUpperCase(), ref);
-                    Field field = EntityReflectingUtils.getField(child.getClass(), fieldName)
-                            .orElseThrow(() -> new RuntimeException("Unable to find fk field value for " + entityType.getCanonicalName() + "#" + f.getName()));
-                    values.add(EntityReflectingUtils.getSafe(field, child));
+                    PreparedStatement st = conn.prepare(sql, needsKey);
+                    for (T record : batch) {
+                        entityMapper.bindEntity(st, record, toBind).addBatch();
+                    }
+                    st.executeBatch();
+                    if (needsKey) {
+                        ResultSet keys = st.getGeneratedKeys();
+                        for (T record : batch) {
+                            setGeneratedKey(keys, record);
+                        }
+                    }
                 }
+                writeLinks(conn, batch, null);
+                return null;
+            });
+        } catch (SQLException | RuntimeException e) {
+            if (needsKey && !databaseGeneratedField.getType().isPrimitive()) {
+                batch.forEach(r -> entityAccessor.set(databaseGeneratedField, r, null));
             }
+            throw e;
         }
-        return values;
+    }
+
+    private void setGeneratedKey(ResultSet keys, T record) throws SQLException {
+        if (!keys.next()) {
+            throw new BabyDBException("No key was returned from the db on insert for " + entityType.getCanonicalName());
+        }
+        entityAccessor.set(databaseGeneratedField, record, entityMapper.getResultValueByPosition(databaseGeneratedField, keys, 1));
+    }
+
+    /**
+     * Read the records back by their keys, single keys are read with in lists, composite keys one at a time
+     */
+    private List<T> refetchAll(Collection<T> records) {
+        if (keyFields.isEmpty()) {
+            logger.warning("There are no primary key fields for " + entityType.getCanonicalName() + ", so the inserted" +
+                    " records can't be re-fetched and are being returned as they were passed in.");
+            return new ArrayList<>(records);
+        }
+        if (keyFields.size() > 1) {
+            try (CachedConnection conn = getCachedConnection()) {
+                List<T> fetched = new ArrayList<>(records.size());
+                for (T record : records) {
+                    fetched.add(get(conn, keyFields.stream().collect(Collectors.toMap(Field::getName, f -> {
+                        Object value = entityAccessor.get(f, record);
+                        return () -> value;
+                    }))));
+                }
+                return fetched;
+            } catch (SQLException e) {
+                throw new BabyDBException("Failed to execute query", e);
+            }
+        }
+        Field keyField = keyFields.get(0);
+        List<Object> keys = records.stream().map(r -> entityAccessor.get(keyField, r)).collect(Collectors.toList());
+        LinkedHashMap<String, Object> where = new LinkedHashMap<>(1);
+        where.put(fieldNameToColName.get(keyField.getName()), keys);
+        Map<Object, T> byKey = getSomeWhere(where, false, true).stream()
+                .collect(Collectors.toMap(t -> entityAccessor.get(keyField, t), t -> t, (a, b) -> a));
+        return keys.stream().map(byKey::get).collect(Collectors.toList());
+    }
+
+    /**
+     * Fill in any {@link Generated} fields that have a column value provider and no value yet
+     *
+     * @return The values that were generated, by field name
+     */
+    private Map<String, Object> generateColumnValues(T record) {
+        if (columnValueProviders.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> generatedValues = new HashMap<>();
+        columnValueProviders.forEach((k, v) -> {
+            if (entityAccessor.get(k, record) == null) {
+                Object generatedValue = v.value();
+                generatedValues.put(k.getName(), generatedValue);
+                entityAccessor.set(k, record, generatedValue);
+            }
+        });
+        return generatedValues;
     }
 
     private boolean isTransient(Field f){
@@ -487,16 +1734,52 @@ public abstract class CoreRepo<T> {
         return delete(key, SqlGen.whereAll(keysToColumnNames(key)));
     }
 
+    /**
+     * Delete the records matching the column values, along with their join table rows. In lists that are too big for
+     * one statement are deleted in chunks, back to back on the same connection, all in one transaction.
+     *
+     * @param columnValues The column names and values to delete by, collections become in lists
+     * @param any          Whether to OR the columns together instead of AND
+     * @return The number of records deleted
+     */
+    protected int deleteWhere(LinkedHashMap<String, ?> columnValues, boolean any) {
+        if (columnValues == null || columnValues.size() < 1) {
+            return 0;
+        }
+        try (CachedConnection conn = getCachedConnection()) {
+            conn.wrote(tableFullName);
+            int count = conn.inTransaction(() -> {
+                int deleted = 0;
+                for (LinkedHashMap<String, Object> chunk : splitInLists(conn, columnValues, any)) {
+                    String where = where(chunk, any);
+                    Object[] values = chunk.values().toArray();
+                    unlinkWhere(conn, where, values);
+                    deleted += entityMapper.prepare(conn, deleteSql + where, false, values).executeUpdate();
+                }
+                return deleted;
+            });
+            evictWhere(columnValues, any);
+            return count;
+        } catch (SQLException e) {
+            throw new BabyDBException("Delete failed", e);
+        }
+    }
+
+    /**
+     * Delete the records matching the where clause, along with their join table rows, in one transaction
+     */
     protected int delete(Map<String, ?> columnValueMap, String where) {
         if (columnValueMap == null || columnValueMap.size() < 1) {
             return 0;
         }
-        try (Connection conn = getConnection()) {
-            PreparedStatement st = entityMapper.prepare(conn, deleteSql + where, columnValueMap.values().toArray());
-            int count = st.executeUpdate();
-            if (!conn.getAutoCommit()) {
-                conn.commit();
-            }
+        try (CachedConnection conn = getCachedConnection()) {
+            conn.wrote(tableFullName);
+            Object[] values = columnValueMap.values().toArray();
+            int count = conn.inTransaction(() -> {
+                unlinkWhere(conn, where, values);
+                return entityMapper.prepare(conn, deleteSql + where, false, values).executeUpdate();
+            });
+            evictWhere(keysToColumnNames(columnValueMap), false);
             return count;
         } catch (SQLException e) {
             throw new BabyDBException("Delete failed", e);
@@ -512,7 +1795,7 @@ public abstract class CoreRepo<T> {
     protected Map<String, ?> fieldValueMap(List<Field> fields, T record) {
         Map<String, Object> keyValues = new HashMap<>(fields.size());
         fields.forEach(f -> {
-            Object v = getSafe(f, record);
+            Object v = entityAccessor.get(f, record);
             if (v != null) keyValues.put(f.getName(), v);
         });
         return keyValues;
@@ -531,4 +1814,16 @@ public abstract class CoreRepo<T> {
     protected List<Field> getFields() {
         return fields;
     }
+
+    protected String getBaseSql() {
+        return baseSql;
+    }
+
+    String getTableFullName() {
+        return tableFullName;
+    }
+
+    EntityMapper<T> getEntityMapper() {
+        return entityMapper;
+    }
 }
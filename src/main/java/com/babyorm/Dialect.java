@@ -0,0 +1,115 @@
+package com.babyorm;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+/**
+ * The few things every database insists on doing its own way.
+ * <p>
+ * Figured out from the connection's metadata, anything we don't recognize gets the cautious defaults.
+ */
+public enum Dialect {
+    DERBY("Apache Derby", 1024, 32767, false, false, false, " fetch first %d rows only"),
+    SQLITE("SQLite", 999, 999, false, false, true, " limit %d"),
+    POSTGRES("PostgreSQL", 32767, 32767, true, true, true, " limit %d"),
+    MYSQL("MySQL", 65535, 65535, true, false, true, " limit %d") {
+        /**
+         * Connector/J ignores the fetch size and buffers everything unless it's given this magic number
+         */
+        @Override
+        public int cursorFetchSize(int fetchSize) {
+            return Integer.MIN_VALUE;
+        }
+
+        /**
+         * Connector/J won't run anything else on a connection until its streaming result is read all the way through
+         */
+        @Override
+        public boolean cursorBlocksConnection() {
+            return true;
+        }
+    },
+    GENERIC(null, 1000, 2000, false, false, false, " fetch first %d rows only");
+
+    private final String productName, limitFormat;
+    private final int maxInListSize, maxBindVariables;
+    private final boolean batchGeneratedKeys, cursorNeedsTransaction, rowValues;
+
+    Dialect(String productName, int maxInListSize, int maxBindVariables, boolean batchGeneratedKeys,
+            boolean cursorNeedsTransaction, boolean rowValues, String limitFormat) {
+        this.productName = productName;
+        this.maxInListSize = maxInListSize;
+        this.maxBindVariables = maxBindVariables;
+        this.batchGeneratedKeys = batchGeneratedKeys;
+        this.cursorNeedsTransaction = cursorNeedsTransaction;
+        this.rowValues = rowValues;
+        this.limitFormat = limitFormat;
+    }
+
+    /**
+     * The most values we'll put in one in list before splitting it across multiple queries
+     */
+    public int getMaxInListSize() {
+        return maxInListSize;
+    }
+
+    /**
+     * The most bind variables the driver will take in one statement
+     */
+    public int getMaxBindVariables() {
+        return maxBindVariables;
+    }
+
+    /**
+     * Whether the driver hands back a generated key for every row of a batch, instead of just the last one or none
+     */
+    public boolean supportsBatchGeneratedKeys() {
+        return batchGeneratedKeys;
+    }
+
+    /**
+     * Whether auto commit has to be off for the driver to read a result a bit at a time instead of all at once
+     */
+    public boolean cursorNeedsTransaction() {
+        return cursorNeedsTransaction;
+    }
+
+    /**
+     * The fetch size to give the driver when streaming a result
+     */
+    public int cursorFetchSize(int fetchSize) {
+        return fetchSize;
+    }
+
+    /**
+     * Whether a connection can't run other statements while it's streaming a result, so the children of a streamed
+     * result have to be loaded on another connection
+     */
+    public boolean cursorBlocksConnection() {
+        return false;
+    }
+
+    /**
+     * Whether rows can be compared as a whole, like {@code (a, b) > (?, ?)}
+     */
+    public boolean supportsRowValues() {
+        return rowValues;
+    }
+
+    /**
+     * The clause that goes at the very end of a select to only get the first few rows
+     */
+    public String limit(int rows) {
+        return String.format(limitFormat, rows);
+    }
+
+    public static Dialect of(DatabaseMetaData metaData) throws SQLException {
+        String productName = metaData.getDatabaseProductName();
+        for (Dialect dialect : values()) {
+            if (dialect.productName != null && dialect.productName.equalsIgnoreCase(productName)) {
+                return dialect;
+            }
+        }
+        return GENERIC;
+    }
+}
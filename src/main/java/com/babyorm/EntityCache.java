@@ -0,0 +1,164 @@
+package com.babyorm;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Whole records of one entity type by primary key, for {@link CoreRepo#setCache(int, java.time.Duration)}.
+ * <p>
+ * Reads never lock, they're a lookup in a concurrent map and a timestamp on the entry. Once the cache is over its size
+ * whoever puts the next record drops anything that's expired, then the least recently used tenth, so the cost of
+ * keeping track of the order is paid in bulk instead of on every read.
+ * <p>
+ * Records go in and come out as copies, see {@link RecordCopier}.
+ *
+ * @param <T> The type of entity
+ */
+final class EntityCache<T> implements RecordCache<T> {
+
+    private final RecordCopier<T> copier;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<List<Object>, Entry<T>> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evicting = new ReentrantLock();
+    private final AtomicLong writes = new AtomicLong();
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+    /**
+     * @param ttlNanos How long a record is good for, 0 for forever
+     */
+    EntityCache(RecordCopier<T> copier, int maxSize, long ttlNanos) {
+        this.copier = copier;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlNanos;
+    }
+
+    /**
+     * The cache key for the primary key values. Integral numbers are all the same to the database, so they're all the
+     * same here too, otherwise an Integer key from the caller wouldn't find the Long key that came from the database.
+     *
+     * @return The key, or null if any of the values are missing
+     */
+    static List<Object> key(List<?> values) {
+        List<Object> key = new ArrayList<>(values.size());
+        for (Object value : values) {
+            if (value == null) {
+                return null;
+            }
+            key.add(keyValue(value));
+        }
+        return key;
+    }
+
+    /**
+     * The value as it goes in a key, whole numbers are all Longs
+     */
+    static Object keyValue(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof BigInteger ? ((Number) value).longValue() : value;
+    }
+
+    @Override
+    public T get(List<Object> key, CachedConnection conn) {
+        Entry<T> entry = entries.get(key);
+        long now = System.nanoTime();
+        if (entry != null && ttlNanos > 0 && now - entry.readAt > ttlNanos) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        entry.lastUsed = now;
+        hits.increment();
+        return copier.copy(entry.record);
+    }
+
+    @Override
+    public long stamp() {
+        return writes.get();
+    }
+
+    @Override
+    public void put(List<Object> key, T record, long stamp) {
+        if (key == null || writes.get() != stamp) {
+            return;
+        }
+        Entry<T> entry = new Entry<>(copier.copy(record), System.nanoTime());
+        entries.put(key, entry);
+        //a change could have snuck in between the check and the put
+        if (writes.get() != stamp) {
+            entries.remove(key, entry);
+        } else if (entries.size() > maxSize && evicting.tryLock()) {
+            try {
+                evict();
+            } finally {
+                evicting.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void invalidate(List<Object> key) {
+        writes.incrementAndGet();
+        if (key != null) {
+            entries.remove(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        writes.incrementAndGet();
+        entries.clear();
+    }
+
+    @Override
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), entries.size(), 0);
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        List<Map.Entry<List<Object>, Entry<T>>> live = new ArrayList<>(entries.size());
+        for (Map.Entry<List<Object>, Entry<T>> e : entries.entrySet()) {
+            if (ttlNanos > 0 && now - e.getValue().readAt > ttlNanos) {
+                drop(e);
+            } else {
+                live.add(e);
+            }
+        }
+        int target = maxSize - maxSize / 10;
+        if (live.size() <= target) {
+            return;
+        }
+        live.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+        for (Map.Entry<List<Object>, Entry<T>> e : live.subList(0, live.size() - target)) {
+            drop(e);
+        }
+    }
+
+    private void drop(Map.Entry<List<Object>, Entry<T>> e) {
+        if (entries.remove(e.getKey(), e.getValue())) {
+            evictions.increment();
+        }
+    }
+
+    private static final class Entry<T> {
+        private final T record;
+        private final long readAt;
+        private volatile long lastUsed;
+
+        Entry(T record, long readAt) {
+            this.record = record;
+            this.readAt = readAt;
+            this.lastUsed = readAt;
+        }
+    }
+}
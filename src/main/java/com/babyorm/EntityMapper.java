@@ -1,13 +1,29 @@
 package com.babyorm;
 
 import com.babyorm.annotation.JoinTo;
+import com.babyorm.util.EntityAccessor;
 import com.babyorm.util.EntityReflectingUtils;
+import com.babyorm.util.FieldAccessor;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.babyorm.util.EntityReflectingUtils.*;
 
@@ -16,21 +32,25 @@ public class EntityMapper<T> {
     private Class<T> entityType;
     private List<Field> fields;
     private Map<String, String> fieldNameToColName;
+    private EntityAccessor<T> entityAccessor;
+    private List<ColumnMapping> mappingPlan;
+    private Selection everything;
+    private Map<Field, ColumnMapping> mappingsByField;
+    /**
+     * Where the primary key is in the mapping plan, if it's a single column, otherwise -1
+     */
+    private int keyIndex = -1;
+    private List<JoinTableLink<T>> links;
 
     /**
-     * the column get methods on the ResultSet
+     * Don't let a pile of one off sql strings grow the column plan cache forever
      */
-    protected static final Map<Class<?>, Method> RESULTSET_COLUMN_NAME_GETTERS =
-            addKeySuperTypes(
-                    addPrimitivesToMap(
-                            findMethods(
-                                    ResultSet.class.getMethods(),
-                                    Method::getReturnType,
-                                    m -> m.getName().startsWith("get"),
-                                    m -> !m.getName().startsWith("getN"),
-                                    m -> m.getParameterCount() == 1,
-                                    m -> m.getParameterTypes()[0].equals(String.class))));
+    private static final int MAX_CACHED_COLUMN_PLANS = 1024;
+    private final Map<String, ColumnPlan> columnPlans = new ConcurrentHashMap<>();
 
+    /**
+     * the column get methods on the ResultSet
+     */
     private static final Map<Class<?>, Method> RESULTSET_POSITION_GETTERS =
             addKeySuperTypes(
                     addPrimitivesToMap(
@@ -62,38 +82,117 @@ public class EntityMapper<T> {
     }
 
     public EntityMapper(Class<T> entityType, List<Field> fields, Map<String,String> fieldNameToColName) {
+        this(entityType, fields, fieldNameToColName, Collections.emptyList(), Collections.emptyList());
+    }
+
+    EntityMapper(Class<T> entityType, List<Field> fields, Map<String,String> fieldNameToColName, List<JoinTableLink<T>> links, List<Field> keyFields) {
+        this.links = links;
         this.fields = fields;
         this.fieldNameToColName = fieldNameToColName;
         this.entityType = entityType;
+        this.entityAccessor = EntityAccessor.forType(entityType);
+        this.mappingPlan = fields.stream().map(ColumnMapping::new).collect(Collectors.toList());
+        this.mappingsByField = mappingPlan.stream().collect(Collectors.toMap(m -> m.field, m -> m));
+        this.everything = new Selection(mappingPlan, Collections.emptyMap(), true);
+        if (keyFields.size() == 1) {
+            this.keyIndex = fields.indexOf(keyFields.get(0));
+        }
     }
 
     /**
      * Create a prepared statement
      * @param conn The connection to prepare the statement with
      * @param sql The sql to execute
+     * @param returnGeneratedKeys Whether the statement should return generated keys, only inserts need this
      * @param args bind variables for the prepared statement
      * @return The prepared statement
      */
-    public PreparedStatement prepare(Connection conn, String sql, Object... args) {
+    public PreparedStatement prepare(Connection conn, String sql, boolean returnGeneratedKeys, Object... args) {
         try {
-            PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            if (args != null && args.length > 0) {
-                int[] pos = new int[]{1};
-                Arrays.stream(args)
-                        .flatMap(o -> o instanceof Collection ? ((Collection) o).stream() : Stream.of(o))
-                        .forEach(o -> invokeSafe(
-                                Optional.ofNullable(o)
-                                        .map(Object::getClass)
-                                        .map(STATEMENT_SETTERS::get)
-                                    .orElse(STATEMENT_SETTERS.get(Object.class)),
-                                ps, pos[0]++, o));
-            }
+            PreparedStatement ps = returnGeneratedKeys
+                    ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                    : conn.prepareStatement(sql);
+            bindArgs(ps, 1, args);
             return ps;
         } catch (SQLException e) {
             throw new BabyDBException("Failed to prepare statement", e);
         }
     }
 
+    /**
+     * Get a prepared statement from the connection's statement cache and bind it
+     * @param conn The connection to prepare the statement with
+     * @param sql The sql to execute
+     * @param returnGeneratedKeys Whether the statement should return generated keys, only inserts need this
+     * @param args bind variables for the prepared statement
+     * @return The prepared statement
+     */
+    PreparedStatement prepare(CachedConnection conn, String sql, boolean returnGeneratedKeys, Object... args) {
+        try {
+            PreparedStatement ps = conn.prepare(sql, returnGeneratedKeys);
+            bindArgs(ps, 1, args);
+            return ps;
+        } catch (SQLException e) {
+            throw new BabyDBException("Failed to prepare statement", e);
+        }
+    }
+
+    /**
+     * Get a prepared statement from the connection's statement cache, binding the values of the given fields straight
+     * off of the entity and then any extra args.
+     * Primitive fields are bound with the primitive setters so they don't get boxed along the way.
+     * @param conn The connection to prepare the statement with
+     * @param sql The sql to execute
+     * @param returnGeneratedKeys Whether the statement should return generated keys, only inserts need this
+     * @param entity The entity to get the field values from
+     * @param fields The fields to bind, in the order they appear in the sql
+     * @param args bind variables to bind after the fields
+     * @return The prepared statement
+     */
+    PreparedStatement prepareForEntity(CachedConnection conn, String sql, boolean returnGeneratedKeys, T entity, List<Field> fields, Object... args) {
+        try {
+            return bindEntity(conn.prepare(sql, returnGeneratedKeys), entity, fields, args);
+        } catch (SQLException e) {
+            throw new BabyDBException("Failed to prepare statement", e);
+        }
+    }
+
+    /**
+     * Bind the values of the given fields straight off of the entity and then any extra args, without clearing what
+     * was bound before. This is for binding each row of a batch, some drivers throw away the batch on clearParameters.
+     * @param ps The statement to bind
+     * @param entity The entity to get the field values from
+     * @param fields The fields to bind, in the order they appear in the sql
+     * @param args bind variables to bind after the fields
+     * @return The same statement
+     */
+    PreparedStatement bindEntity(PreparedStatement ps, T entity, List<Field> fields, Object... args) throws SQLException {
+        int pos = 1;
+        for (Field f : fields) {
+            mappingsByField.get(f).bind(ps, pos++, entity);
+        }
+        bindArgs(ps, pos, args);
+        return ps;
+    }
+
+    static void bindArgs(PreparedStatement ps, int startPos, Object... args) {
+        if (args != null && args.length > 0) {
+            int[] pos = new int[]{startPos};
+            Arrays.stream(args)
+                    .flatMap(o -> o instanceof Collection ? ((Collection<?>) o).stream() : Stream.of(o))
+                    .forEach(o -> bindValue(ps, pos[0]++, o));
+        }
+    }
+
+    private static void bindValue(PreparedStatement ps, int pos, Object value) {
+        invokeSafe(
+                Optional.ofNullable(value)
+                        .map(Object::getClass)
+                        .map(STATEMENT_SETTERS::get)
+                        .orElse(STATEMENT_SETTERS.get(Object.class)),
+                ps, pos, value);
+    }
+
     /**
      * Map a single field to a result set
      * @param field The field to map to (This is needed to determine the proper return type)
@@ -102,69 +201,810 @@ public class EntityMapper<T> {
      * @return The value
      */
     public Object getResultValueByPosition(Field field, ResultSet resultSet, int position) {
-        return getResultValue(field, resultSet, RESULTSET_POSITION_GETTERS, position);
-    }
-
-    public Object getResultValueByName(Field field, ResultSet resultSet){
-        return getResultValue(field, resultSet, RESULTSET_COLUMN_NAME_GETTERS, fieldNameToColName.get(field.getName()));
-    }
-
-    private Object getResultValue(Field field, ResultSet resultSet, Map<Class<?>, Method> getters, Object getterArg) {
         Class<?> type = field.getType();
-        Optional<Method> method = Optional.ofNullable(getters.get(type));
-        Object result;
-        if(method.isPresent()){
-            result = EntityReflectingUtils.invokeSafe(method.get(), resultSet, getterArg);
-        } else {
-            result = getChildEntity(field, resultSet, getters, getterArg);
+        Method getter = RESULTSET_POSITION_GETTERS.get(type);
+        if (getter == null) {
+            throw new BabyDBException("Don't know how to read a " + type.getCanonicalName() + " for field: "
+                    + field.getDeclaringClass().getCanonicalName() + "." + field.getName());
         }
+        Object result = EntityReflectingUtils.invokeSafe(getter, resultSet, position);
         if (result == null) {
             return null;
         } else if (PRIMITIVE_INVERSE.containsKey(type)) {
             if (!result.getClass().isAssignableFrom(type) && !result.getClass().isAssignableFrom(PRIMITIVE_INVERSE.get(type))) {
-                throw new BabyDBException("Incompatible types for field: " + field.getDeclaringClass().getCanonicalName() + "." + field.getName() + ".  " +
-                        "Wanted a " + type.getCanonicalName() + " but got a " + result.getClass().getCanonicalName());
+                throw incompatibleTypes(field, result);
             }
         } else if (!result.getClass().isAssignableFrom(type)) {
-            throw new BabyDBException("Incompatible types for field: " + field.getDeclaringClass().getCanonicalName() + "." + field.getName() + ".  " +
-                    "Wanted a " + type.getCanonicalName() + " but got a " + result.getClass().getCanonicalName());
+            throw incompatibleTypes(field, result);
         }
         return result;
     }
 
-    private Object getChildEntity(Field field, ResultSet resultSet, Map<Class<?>, Method> getters, Object getterArg){
-        //if field is a collection type, get it's parameterized type to determine the entity type
-        //see what happens if the type isn't specified, like List and throw an error in that case
-        //create and pass a stack of entity classes and identifiers as unique values (a hash maybe)
-        //if we find a circular dependency, set the value but stop the traversal
-        BabyRepo childRepo = BabyRepo.forType(field.getType());
-        String ref = Optional.ofNullable(field.getAnnotation(JoinTo.class)).map(JoinTo::value).get();
-        Object refValue = EntityReflectingUtils.invokeSafe(getters.get(childRepo.getColumnClass(ref)), resultSet, getterArg);
-        return childRepo.getOneBy(ref, refValue);
+    private static BabyDBException incompatibleTypes(Field field, Object result) {
+        return new BabyDBException("Incompatible types for field: " + field.getDeclaringClass().getCanonicalName() + "." + field.getName() + ".  " +
+                "Wanted a " + field.getType().getCanonicalName() + " but got a " + result.getClass().getCanonicalName());
     }
 
-    public List<T> mapResultSet(PreparedStatement st, boolean isMany) {
+    /**
+     * Map the rows of an executed statement to entities, as part of a bigger object graph
+     * @param conn The connection to load the rest of the graph on. The result is read all the way through before
+     *             anything else is run on it.
+     * @param selection The fields to read
+     * @param sql The sql that was executed, this is used to cache which column each field is read from
+     * @param st The executed statement
+     * @param isMany Whether more than one row is allowed
+     * @param context What's already been read for the graph, records that are already in it are used instead of
+     *                creating another copy
+     */
+    List<T> mapResultSet(CachedConnection conn, Selection selection, String sql, PreparedStatement st, boolean isMany, LoadContext context) {
         try {
             ResultSet rs = st.getResultSet();
+            ColumnPlan columns = columnPlan(sql, rs, selection);
             List<T> many = isMany ? new ArrayList<>() : null;
             boolean hasOne = false;
             T model = null;
+            ChildLoads children = new ChildLoads(context, conn);
             while (rs.next()) {
                 if (hasOne && !isMany) {
                     throw new BabyDBException("Multiple rows found for single row query");
                 }
                 hasOne = true;
-                model = entityType.getConstructor().newInstance();
-                for (Field f : fields) {
-                    f.set(model, getResultValueByName(f, rs));
-                }
+                model = mapRow(rs, columns, children);
                 if (isMany) {
                     many.add(model);
                 }
             }
+            children.load();
             return isMany ? many : Collections.singletonList(model);
-        } catch (ReflectiveOperationException | SQLException e) {
+        } catch (SQLException e) {
             throw new BabyDBException("Failed to map resultSet to object", e);
         }
     }
+
+    /**
+     * Lazily map the rows of the result set as the stream is consumed. The stream must be closed to let go of the
+     * result set, that happens on its own once the last row is read or anything fails.
+     * <p>
+     * If there are children to load, rows are read a fetch at a time so their children can be loaded together.
+     * Each fetch gets its own load context, so a long stream doesn't hang on to everything it's read.
+     *
+     * @param sql The sql the result set came from
+     * @param rs The result set to read
+     * @param fetchSize How many rows the driver reads at a time
+     * @param conn The connection to load children on while the result is still being read, or null to check out
+     *             another one for each load, for drivers that can't do anything else with the connection mid result
+     * @param onClose What to close once the stream is done, this will only be run once
+     */
+    Stream<T> streamResultSet(String sql, ResultSet rs, int fetchSize, CachedConnection conn, AutoCloseable onClose) throws SQLException {
+        ColumnPlan columns = columnPlan(sql, rs, everything);
+        int batch = columns.selection.hasChildren() ? Math.max(1, fetchSize) : 1;
+        Deque<T> buffered = new ArrayDeque<>(batch);
+        boolean[] closed = new boolean[1];
+        Runnable close = () -> {
+            if (!closed[0]) {
+                closed[0] = true;
+                try {
+                    onClose.close();
+                } catch (Exception e) {
+                    throw new BabyDBException("Failed to close the result of: " + sql, e);
+                }
+            }
+        };
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (buffered.isEmpty()) {
+                    if (closed[0]) {
+                        return false;
+                    }
+                    read();
+                    if (buffered.isEmpty()) {
+                        return false;
+                    }
+                }
+                action.accept(buffered.poll());
+                return true;
+            }
+
+            private void read() {
+                try {
+                    ChildLoads children = new ChildLoads(new LoadContext(), conn);
+                    while (buffered.size() < batch) {
+                        if (!rs.next()) {
+                            close.run();
+                            break;
+                        }
+                        buffered.add(mapRow(rs, columns, children));
+                    }
+                    children.load();
+                } catch (SQLException | RuntimeException e) {
+                    try {
+                        close.run();
+                    } catch (RuntimeException closeFailure) {
+                        e.addSuppressed(closeFailure);
+                    }
+                    throw e instanceof RuntimeException ? (RuntimeException) e : new BabyDBException("Failed to map resultSet to object", e);
+                }
+            }
+        }, false).onClose(close);
+    }
+
+    /**
+     * Map every row of the result set into the same instance, handing it to the action after each row.
+     * Every mapped field is overwritten on every row, nulls included, so nothing leaks from one row to the next.
+     * Since there's only ever one row around, children are loaded one row at a time.
+     *
+     * @param sql The sql the result set came from
+     * @param rs The result set to read
+     * @param conn The connection to load children on while the result is still being read, or null to check out
+     *             another one for each load, for drivers that can't do anything else with the connection mid result
+     * @param action What to do with each row, it must copy anything it wants to keep
+     */
+    void forEachRow(String sql, ResultSet rs, CachedConnection conn, Consumer<? super T> action) throws SQLException {
+        ColumnPlan columns = columnPlan(sql, rs, everything);
+        T flyweight = entityAccessor.newInstance();
+        while (rs.next()) {
+            ChildLoads children = new ChildLoads(new LoadContext(), conn);
+            mapRow(rs, columns, flyweight, children);
+            children.load();
+            action.accept(flyweight);
+        }
+    }
+
+    /**
+     * The value of every column for the record, with each child boiled down to the value it's joined on.
+     * {@link #fromColumnValues(Object[])} turns them back into a record.
+     */
+    Object[] columnValues(T record) {
+        Object[] values = new Object[mappingPlan.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = mappingPlan.get(i).columnValue(record);
+        }
+        return values;
+    }
+
+    /**
+     * The value of the field's column for the record, see {@link #columnValues(Object)}
+     */
+    Object columnValue(T record, Field field) {
+        return mappingsByField.get(field).columnValue(record);
+    }
+
+    /**
+     * Build a record back up from its {@link #columnValues(Object)}, loading its children the same way a query does
+     *
+     * @param conn The connection to load the children on, or null to check one out
+     */
+    T fromColumnValues(Object[] values, CachedConnection conn) {
+        ChildLoads children = new ChildLoads(new LoadContext(), conn);
+        T model = entityAccessor.newInstance();
+        for (int i = 0; i < values.length; i++) {
+            mappingPlan.get(i).set(model, values[i], children);
+        }
+        if (!links.isEmpty()) {
+            children.link(this, model);
+        }
+        children.load();
+        return model;
+    }
+
+    private T mapRow(ResultSet rs, ColumnPlan plan, ChildLoads children) throws SQLException {
+        T model = entityAccessor.newInstance();
+        if (plan.selection.whole && keyIndex >= 0) {
+            T known = identify(rs, plan.columns[keyIndex], model, children);
+            if (known != model) {
+                return known;
+            }
+        }
+        return mapRow(rs, plan, model, children);
+    }
+
+    /**
+     * Read the key into the new model and check whether the record was already read for this graph
+     *
+     * @return The record that was already read, or the new model if it wasn't
+     */
+    @SuppressWarnings("unchecked")
+    private T identify(ResultSet rs, int keyColumn, T model, ChildLoads children) throws SQLException {
+        ColumnMapping keyMapping = mappingPlan.get(keyIndex);
+        keyMapping.map(rs, keyColumn, model, children);
+        Object key = keyMapping.accessor.get(model);
+        return key == null ? model : (T) children.context.remember(entityType, keyMapping.field.getName(), key, model);
+    }
+
+    private T mapRow(ResultSet rs, ColumnPlan plan, T model, ChildLoads children) throws SQLException {
+        List<ColumnMapping> mappings = plan.selection.mappings;
+        int[] columns = plan.columns;
+        int[][] joined = plan.joined;
+        for (int i = 0; i < columns.length; i++) {
+            if (joined[i] != null) {
+                mappings.get(i).mapJoined(rs, columns[i], joined[i], model, children);
+            } else {
+                mappings.get(i).map(rs, columns[i], model, children);
+            }
+        }
+        if (plan.selection.whole && !links.isEmpty()) {
+            children.link(this, model);
+        }
+        return model;
+    }
+
+    /**
+     * Map a child that was joined into some other entity's row
+     *
+     * @param columns The position of each of this entity's columns in the row
+     */
+    private T mapJoinedRow(ResultSet rs, int[] columns, ChildLoads children) throws SQLException {
+        T model = entityAccessor.newInstance();
+        if (keyIndex >= 0) {
+            T known = identify(rs, columns[keyIndex], model, children);
+            if (known != model) {
+                return known;
+            }
+        }
+        List<ColumnMapping> mappings = everything.mappings;
+        for (int i = 0; i < columns.length; i++) {
+            mappings.get(i).map(rs, columns[i], model, children);
+        }
+        if (!links.isEmpty()) {
+            children.link(this, model);
+        }
+        return model;
+    }
+
+    /**
+     * The children the mapped rows point at, collected while the rows are read so each kind of child can be loaded with
+     * one query per in list chunk instead of one query per row.
+     */
+    private static class ChildLoads {
+        private final LoadContext context;
+        private final CachedConnection conn;
+        private final Map<EntityMapper<?>.ColumnMapping, List<Object[]>> pending = new LinkedHashMap<>();
+        private final Map<EntityMapper<?>.ColumnMapping, Lazy.Batch> lazies = new HashMap<>();
+        private final Map<EntityMapper<?>, List<Object>> linked = new LinkedHashMap<>();
+
+        /**
+         * @param conn The connection to load everything on, or null to check one out for each load
+         */
+        ChildLoads(LoadContext context, CachedConnection conn) {
+            this.context = context;
+            this.conn = conn;
+        }
+
+        void add(EntityMapper<?>.ColumnMapping mapping, Object model, Object key) {
+            pending.computeIfAbsent(mapping, m -> new ArrayList<>()).add(new Object[]{model, key});
+        }
+
+        /**
+         * Remember a model that has join table props to load
+         */
+        void link(EntityMapper<?> mapper, Object model) {
+            linked.computeIfAbsent(mapper, m -> new ArrayList<>()).add(model);
+        }
+
+        /**
+         * Get a lazy child that'll be loaded along with all of the other lazy children of the same field.
+         * They're loaded on a connection of their own, whatever connection this result came from is long gone by then.
+         */
+        Lazy<?> lazy(EntityMapper<?>.ColumnMapping mapping, Object key) {
+            return lazies.computeIfAbsent(mapping, m -> new Lazy.Batch(keys -> m.loadChildren(null, keys, context))).add(key);
+        }
+
+        /**
+         * Load everything that was asked for and set the children on the models that asked for them.
+         * Lazy children are left for later, but the next ones asked for go in a new batch.
+         */
+        void load() {
+            lazies.clear();
+            pending.forEach((mapping, waiting) -> {
+                Map<Object, ?> byKey = mapping.loadChildren(conn, waiting.stream().map(w -> w[1]).collect(Collectors.toCollection(LinkedHashSet::new)), context);
+                for (Object[] w : waiting) {
+                    mapping.accessor.set(w[0], byKey.get(w[1]));
+                }
+            });
+            pending.clear();
+            linked.forEach((mapper, models) -> mapper.links.forEach(link -> link.load(conn, models, context)));
+            linked.clear();
+        }
+    }
+
+    /**
+     * Find the position of each selected field's column in the result. Drivers do a case insensitive search of the column
+     * names every time you get a value by name, so we do it once per sql string instead.
+     */
+    private ColumnPlan columnPlan(String sql, ResultSet rs, Selection selection) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        ColumnPlan plan = columnPlans.get(sql);
+        if (plan == null || plan.selection != selection || !plan.matches(metaData)) {
+            plan = new ColumnPlan(sql, metaData, selection);
+            if (columnPlans.size() < MAX_CACHED_COLUMN_PLANS) {
+                columnPlans.put(sql, plan);
+            }
+        }
+        return plan;
+    }
+
+    Selection selectAll() {
+        return everything;
+    }
+
+    /**
+     * Pick out just some of the fields to map, for queries that only select some of the columns.
+     * Fields that aren't selected are left alone.
+     *
+     * @param fields The fields to read, in the order they'll be selected
+     */
+    Selection select(List<Field> fields) {
+        return new Selection(fields.stream().map(mappingsByField::get).collect(Collectors.toList()));
+    }
+
+    /**
+     * The types of every @JoinTo child, lazy ones included
+     */
+    Set<Class<?>> childTypes() {
+        return mappingPlan.stream().filter(ColumnMapping::isChild).map(m -> m.childType).collect(Collectors.toSet());
+    }
+
+    /**
+     * The fields that hold @JoinTo children that are loaded right away, not the {@link Lazy} ones
+     */
+    List<Field> childFields() {
+        return mappingPlan.stream().filter(m -> m.isChild() && !m.lazy).map(m -> m.field).collect(Collectors.toList());
+    }
+
+    /**
+     * All of the fields, with some of the @JoinTo children read out of the same row instead of loaded separately.
+     * Every column of a joined child is labelled with its prefix followed by the child's column name.
+     *
+     * @param prefixes The label prefix for each child field that's joined in
+     */
+    Selection joined(Map<Field, String> prefixes) {
+        Map<ColumnMapping, String> joinPrefixes = new HashMap<>();
+        prefixes.forEach((f, prefix) -> joinPrefixes.put(mappingsByField.get(f), prefix));
+        return new Selection(mappingPlan, joinPrefixes, true);
+    }
+
+    /**
+     * Some or all of the fields of the entity, along with everything needed to turn the partially filled in entities
+     * into some other type.
+     */
+    class Selection {
+        private final List<ColumnMapping> mappings;
+        private final Map<ColumnMapping, String> joinPrefixes;
+        /**
+         * Whether this is the whole entity, only whole entities get their join table props
+         */
+        private final boolean whole;
+        private final Map<Class<?>, Function<T, ?>> adapters = new ConcurrentHashMap<>();
+
+        private Selection(List<ColumnMapping> mappings) {
+            this(mappings, Collections.emptyMap(), false);
+        }
+
+        private Selection(List<ColumnMapping> mappings, Map<ColumnMapping, String> joinPrefixes, boolean whole) {
+            this.mappings = Collections.unmodifiableList(new ArrayList<>(mappings));
+            this.joinPrefixes = joinPrefixes;
+            this.whole = whole;
+        }
+
+        List<Field> getFields() {
+            return mappings.stream().map(m -> m.field).collect(Collectors.toList());
+        }
+
+        boolean hasChildren() {
+            return mappings.stream().anyMatch(ColumnMapping::isChild) || whole && !links.isEmpty();
+        }
+
+        /**
+         * Get the function that copies the selected fields off of an entity into a new instance of the given type.
+         * Interfaces get a proxy with a getter for each selected field, either {@code getName()}, {@code isName()} or
+         * just {@code name()}. Classes need a no arg constructor and a field with the same name for each selected field.
+         */
+        @SuppressWarnings("unchecked")
+        <D> Function<T, D> adapter(Class<D> type) {
+            return (Function<T, D>) adapters.computeIfAbsent(type, t -> t.isInterface() ? proxyAdapter(t) : copyAdapter(t));
+        }
+
+        private <D> Function<T, D> copyAdapter(Class<D> type) {
+            EntityAccessor<D> target = EntityAccessor.forType(type);
+            List<ColumnMapping> from = mappings;
+            List<FieldAccessor> to = from.stream().map(m -> target.accessor(m.field.getName())).collect(Collectors.toList());
+            return entity -> {
+                D copy = target.newInstance();
+                for (int i = 0; i < from.size(); i++) {
+                    to.get(i).set(copy, from.get(i).accessor.get(entity));
+                }
+                return copy;
+            };
+        }
+
+        private <D> Function<T, D> proxyAdapter(Class<D> type) {
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < mappings.size(); i++) {
+                positions.put(mappings.get(i).field.getName(), i);
+            }
+            Map<Method, Integer> getters = new HashMap<>();
+            Map<Method, MethodHandle> defaults = new HashMap<>();
+            for (Method m : type.getMethods()) {
+                if (m.isDefault()) {
+                    defaults.put(m, defaultMethod(m));
+                    continue;
+                }
+                if (Modifier.isStatic(m.getModifiers()) || isObjectMethod(m)) {
+                    continue;
+                }
+                Integer position = positions.get(propertyName(m.getName()));
+                if (position == null || m.getParameterCount() != 0) {
+                    throw new BabyDBException("Can't make a " + type.getCanonicalName() + " out of the selected fields " +
+                            positions.keySet() + ", there's nothing selected for " + m.getName());
+                }
+                getters.put(m, position);
+            }
+            ClassLoader classLoader = type.getClassLoader();
+            Class<?>[] interfaces = new Class<?>[]{type};
+            return entity -> {
+                Object[] values = new Object[mappings.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = mappings.get(i).accessor.get(entity);
+                }
+                return type.cast(Proxy.newProxyInstance(classLoader, interfaces, new ProjectionHandler(type, getters, defaults, positions, values)));
+            };
+        }
+    }
+
+    /**
+     * A proxy can't call an interface's default method on its own, so get a handle that calls the interface's version
+     * directly. That takes a lookup with private access to the interface, which java 9 hands out and java 8 doesn't.
+     */
+    private static MethodHandle defaultMethod(Method m) {
+        Class<?> type = m.getDeclaringClass();
+        try {
+            MethodHandles.Lookup lookup;
+            try {
+                lookup = (MethodHandles.Lookup) MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class)
+                        .invoke(null, type, MethodHandles.lookup());
+            } catch (NoSuchMethodException e) {
+                Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+                constructor.setAccessible(true);
+                lookup = constructor.newInstance(type, MethodHandles.Lookup.PRIVATE);
+            }
+            return lookup.unreflectSpecial(m, type);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new BabyDBException("Failed to access the default method " + type.getCanonicalName() + "#" + m.getName(), e);
+        }
+    }
+
+    private static boolean isObjectMethod(Method m) {
+        try {
+            Object.class.getMethod(m.getName(), m.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static String propertyName(String methodName) {
+        String name = methodName.startsWith("get") && methodName.length() > 3 ? methodName.substring(3)
+                : methodName.startsWith("is") && methodName.length() > 2 ? methodName.substring(2)
+                : methodName;
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Backs the interface projections. Only knows how to hand back the values it was given, plus the Object basics.
+     * Default methods run as written on the interface.
+     */
+    private static class ProjectionHandler implements InvocationHandler {
+        private final Class<?> type;
+        private final Map<Method, Integer> getters;
+        private final Map<Method, MethodHandle> defaults;
+        private final Map<String, Integer> positions;
+        private final Object[] values;
+
+        ProjectionHandler(Class<?> type, Map<Method, Integer> getters, Map<Method, MethodHandle> defaults,
+                          Map<String, Integer> positions, Object[] values) {
+            this.type = type;
+            this.getters = getters;
+            this.defaults = defaults;
+            this.positions = positions;
+            this.values = values;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Integer position = getters.get(method);
+            if (position != null) {
+                return values[position];
+            }
+            MethodHandle defaultMethod = defaults.get(method);
+            if (defaultMethod != null) {
+                return defaultMethod.bindTo(proxy).invokeWithArguments(args == null ? new Object[0] : args);
+            }
+            switch (method.getName()) {
+                case "equals":
+                    return args[0] != null && Proxy.isProxyClass(args[0].getClass())
+                            && Proxy.getInvocationHandler(args[0]) instanceof ProjectionHandler
+                            && type.equals(((ProjectionHandler) Proxy.getInvocationHandler(args[0])).type)
+                            && Arrays.equals(values, ((ProjectionHandler) Proxy.getInvocationHandler(args[0])).values);
+                case "hashCode":
+                    return Arrays.hashCode(values);
+                case "toString":
+                    return type.getSimpleName() + positions.entrySet().stream()
+                            .sorted(Map.Entry.comparingByValue())
+                            .map(e -> e.getKey() + "=" + values[e.getValue()])
+                            .collect(Collectors.joining(", ", "{", "}"));
+                default:
+                    throw new UnsupportedOperationException(method.getName() + " isn't something a projection can do");
+            }
+        }
+    }
+
+    /**
+     * The column positions to read each selected field from, for one sql string.
+     * The labels it was built from are kept so a different database or a changed table doesn't get read by the wrong positions.
+     */
+    private class ColumnPlan {
+        private final Selection selection;
+        private final String[] labels;
+        private final int[] columns;
+        /**
+         * Where each column of a joined child is, or null for everything that isn't joined
+         */
+        private final int[][] joined;
+
+        ColumnPlan(String sql, ResultSetMetaData metaData, Selection selection) throws SQLException {
+            this.selection = selection;
+            labels = new String[metaData.getColumnCount()];
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = labels.length; i > 0; i--) {
+                labels[i - 1] = metaData.getColumnLabel(i);
+                positions.put(labels[i - 1].toUpperCase(), i);
+            }
+            List<ColumnMapping> mappings = selection.mappings;
+            columns = new int[mappings.size()];
+            joined = new int[mappings.size()][];
+            List<String> missing = new ArrayList<>();
+            for (int i = 0; i < columns.length; i++) {
+                ColumnMapping mapping = mappings.get(i);
+                String prefix = selection.joinPrefixes.get(mapping);
+                if (prefix == null) {
+                    columns[i] = position(positions, mapping.columnName, missing);
+                    continue;
+                }
+                //the joined column tells us whether the left join found a child
+                mapping.resolveChild();
+                EntityMapper<?> childMapper = mapping.childRepo.getEntityMapper();
+                columns[i] = position(positions, prefix + childMapper.fieldNameToColName.get(mapping.childRefFieldName), missing);
+                //the child maps all of its fields, in the same order as its mapping plan
+                List<Field> childFields = childMapper.fields;
+                joined[i] = new int[childFields.size()];
+                for (int c = 0; c < joined[i].length; c++) {
+                    joined[i][c] = position(positions, prefix + childMapper.fieldNameToColName.get(childFields.get(c).getName()), missing);
+                }
+            }
+            if (!missing.isEmpty()) {
+                throw new BabyDBException("Columns " + missing + " needed to map " + entityType.getCanonicalName() +
+                        " are missing from the result of: " + sql);
+            }
+        }
+
+        private int position(Map<String, Integer> positions, String label, List<String> missing) {
+            Integer position = positions.get(label.toUpperCase());
+            if (position == null) {
+                missing.add(label);
+                return 0;
+            }
+            return position;
+        }
+
+        boolean matches(ResultSetMetaData metaData) throws SQLException {
+            if (metaData.getColumnCount() != labels.length) {
+                return false;
+            }
+            for (int i = 0; i < labels.length; i++) {
+                if (!labels[i].equals(metaData.getColumnLabel(i + 1))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * One step of the mapping plan: reads one column off of the current row and writes it to one field, or the other way
+     * around when binding. The handles are resolved once when the mapper is built so mapping a row doesn't go looking for anything.
+     * The column position is resolved per sql, see {@link #columnPlan(String, ResultSet, Selection)}.
+     */
+    private class ColumnMapping {
+        private final Field field;
+        private final Class<?> type;
+        private final boolean isPrimitiveWrapper;
+        private final boolean lazy;
+        /**
+         * The type of entity a @JoinTo field holds, which is the field's type unless it's {@link Lazy}
+         */
+        private final Class<?> childType;
+        private final String columnName;
+        private final FieldAccessor accessor;
+        private MethodHandle reader;
+        private MethodHandle childKeyReader;
+        private BabyRepo<?> childRepo;
+        private String childRef;
+        private String childRefFieldName;
+
+        ColumnMapping(Field field) {
+            this.field = field;
+            this.type = field.getType();
+            this.isPrimitiveWrapper = !type.isPrimitive() && PRIMITIVE_INVERSE.containsKey(type);
+            this.columnName = fieldNameToColName.get(field.getName());
+            this.accessor = entityAccessor.accessor(field);
+            this.lazy = type == Lazy.class;
+            this.childType = lazy ? lazyType(field) : type;
+            Method getter = RESULTSET_POSITION_GETTERS.get(type);
+            if (getter != null) {
+                this.reader = positionReader(getter);
+            }
+        }
+
+        boolean isChild() {
+            return reader == null;
+        }
+
+        void map(ResultSet rs, int column, Object model, ChildLoads children) throws SQLException {
+            if (type == int.class) {
+                accessor.setInt(model, rs.getInt(column));
+            } else if (type == long.class) {
+                accessor.setLong(model, rs.getLong(column));
+            } else if (type == double.class) {
+                accessor.setDouble(model, rs.getDouble(column));
+            } else if (reader == null) {
+                resolveChild();
+                Object key = read(childKeyReader, rs, column);
+                if (lazy) {
+                    accessor.set(model, key == null ? Lazy.of(null) : children.lazy(this, key));
+                } else if (key == null) {
+                    accessor.set(model, null);
+                } else {
+                    children.add(this, model, key);
+                }
+            } else {
+                Object value = read(reader, rs, column);
+                if (isPrimitiveWrapper && value != null && rs.wasNull()) {
+                    //the primitive getters hand back 0 for null
+                    value = null;
+                }
+                try {
+                    accessor.set(model, value);
+                } catch (ClassCastException e) {
+                    throw incompatibleTypes(field, value);
+                }
+            }
+        }
+
+        /**
+         * Map a child that was left joined into the row
+         *
+         * @param refColumn     Where the column the child was joined on is, this is null when there's no child
+         * @param childColumns  Where each of the child's columns are
+         */
+        void mapJoined(ResultSet rs, int refColumn, int[] childColumns, Object model, ChildLoads children) throws SQLException {
+            rs.getObject(refColumn);
+            accessor.set(model, rs.wasNull() ? null : childRepo.getEntityMapper().mapJoinedRow(rs, childColumns, children));
+        }
+
+        void bind(PreparedStatement ps, int pos, Object model) throws SQLException {
+            if (type == int.class) {
+                ps.setInt(pos, accessor.getInt(model));
+            } else if (type == long.class) {
+                ps.setLong(pos, accessor.getLong(model));
+            } else if (type == double.class) {
+                ps.setDouble(pos, accessor.getDouble(model));
+            } else if (isSupportedSqlType(type)) {
+                bindValue(ps, pos, accessor.get(model));
+            } else if (lazy) {
+                Lazy<?> child = (Lazy<?>) accessor.get(model);
+                resolveChild();
+                bindValue(ps, pos, child == null ? null : child.key(this::refValue));
+            } else {
+                Object child = accessor.get(model);
+                resolveChild();
+                bindValue(ps, pos, child == null ? null : refValue(child));
+            }
+        }
+
+        /**
+         * The value that goes in the column for the model, for a child that's the value it's joined on
+         */
+        Object columnValue(Object model) {
+            if (!isChild()) {
+                return accessor.get(model);
+            }
+            resolveChild();
+            if (lazy) {
+                Lazy<?> child = (Lazy<?>) accessor.get(model);
+                return child == null ? null : child.key(this::refValue);
+            }
+            Object child = accessor.get(model);
+            return child == null ? null : refValue(child);
+        }
+
+        /**
+         * Set a value from {@link #columnValue(Object)} back on a model, children are loaded along with the rest
+         */
+        void set(Object model, Object value, ChildLoads children) {
+            if (!isChild()) {
+                accessor.set(model, value);
+                return;
+            }
+            resolveChild();
+            if (lazy) {
+                accessor.set(model, value == null ? Lazy.of(null) : children.lazy(this, value));
+            } else if (value == null) {
+                accessor.set(model, null);
+            } else {
+                children.add(this, model, value);
+            }
+        }
+
+        private Object refValue(Object child) {
+            return EntityAccessor.forType(child.getClass()).accessor(childRefFieldName).get(child);
+        }
+
+        /**
+         * Load the children for all of the keys at once, the child repo splits up the in list if it's too big
+         *
+         * @return The children by the value of the column they're joined on
+         */
+        private Map<Object, ?> loadChildren(CachedConnection conn, Collection<Object> keys, LoadContext context) {
+            return childRepo.loadBy(conn, childRefFieldName, keys, context);
+        }
+
+        /**
+         * The child repo can't be looked up while this repo is being built, it may not exist yet, and it may need us.
+         */
+        private void resolveChild() {
+            if (childRepo == null) {
+                childRef = Optional.ofNullable(field.getAnnotation(JoinTo.class))
+                        .map(JoinTo::value)
+                        .orElseThrow(() -> new BabyDBException("You must specify the column to join to using the JoinTo annotation, " +
+                                "or add the transient modifier on the field: " + field.getDeclaringClass().getCanonicalName() + "#" + field.getName()));
+                BabyRepo<?> repo = BabyRepo.forType(childType);
+                childKeyReader = positionReader(RESULTSET_POSITION_GETTERS.get(repo.getColumnClass(childRef)));
+                childRefFieldName = repo.colNameToFieldName.getOrDefault(childRef.toUpperCase(), childRef);
+                childRepo = repo;
+            }
+        }
+
+        private Object read(MethodHandle reader, ResultSet rs, int column) throws SQLException {
+            try {
+                return (Object) reader.invokeExact(rs, column);
+            } catch (SQLException | RuntimeException e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new BabyDBException("Failed to read column " + columnName, t);
+            }
+        }
+    }
+
+    private static Class<?> lazyType(Field field) {
+        Type generic = field.getGenericType();
+        if (generic instanceof ParameterizedType) {
+            Type child = ((ParameterizedType) generic).getActualTypeArguments()[0];
+            if (child instanceof Class) {
+                return (Class<?>) child;
+            }
+        }
+        throw new BabyDBException("Lazy fields need to say what they hold, like Lazy<Child>: "
+                + field.getDeclaringClass().getCanonicalName() + "#" + field.getName());
+    }
+
+    private static MethodHandle positionReader(Method getter) {
+        try {
+            return MethodHandles.publicLookup()
+                    .unreflect(getter)
+                    .asType(MethodType.methodType(Object.class, ResultSet.class, int.class));
+        } catch (IllegalAccessException e) {
+            throw new BabyDBException("Failed to access ResultSet#" + getter.getName(), e);
+        }
+    }
 }
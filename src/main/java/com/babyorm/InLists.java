@@ -0,0 +1,127 @@
+package com.babyorm;
+
+import java.util.*;
+
+/**
+ * Keeps in lists from turning every call into brand new sql.
+ * <p>
+ * Lists are de-duplicated and padded up to the next power of two by repeating the last value, so 5, 6, 7 or 8 ids all
+ * end up as the same 8 placeholder statement. Lists bigger than the limit are split into chunks that each get their
+ * own query, with the bind variables shared out between the lists so no query goes over what the driver allows.
+ */
+final class InLists {
+
+    private InLists() {
+    }
+
+    /**
+     * Split up the where values into one set of values per query to run.
+     *
+     * @param columnValues     The column names and values, collections become in lists
+     * @param any              Whether the columns are ORed together instead of ANDed
+     * @param maxInListSize    The most values to put in one in list
+     * @param maxBindVariables The most bind variables the driver allows in one statement
+     * @return The values for each query, empty if nothing could possibly match
+     * @throws BabyDBException If the values that aren't in lists, plus one for each list, are already too many binds
+     */
+    static List<LinkedHashMap<String, Object>> split(Map<String, ?> columnValues, boolean any, int maxInListSize, int maxBindVariables) {
+        LinkedHashMap<String, Object> values = new LinkedHashMap<>(columnValues.size());
+        List<String> lists = new ArrayList<>();
+        for (Map.Entry<String, ?> e : columnValues.entrySet()) {
+            Object value = e.getValue();
+            if (value instanceof Collection) {
+                List<Object> distinct = new ArrayList<>(new LinkedHashSet<>((Collection<?>) value));
+                if (distinct.isEmpty()) {
+                    //in () matches nothing, which sinks the whole query for ALL but only this column for ANY
+                    if (any) continue;
+                    return Collections.emptyList();
+                }
+                lists.add(e.getKey());
+                value = distinct;
+            }
+            values.put(e.getKey(), value);
+        }
+        if (values.isEmpty() && !columnValues.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (lists.isEmpty()) {
+            return Collections.singletonList(values);
+        }
+
+        int budget = maxBindVariables - (values.size() - lists.size());
+        if (budget < lists.size()) {
+            throw new BabyDBException("There are too many values to look up by for one statement, the driver only allows "
+                    + maxBindVariables + " bind variables");
+        }
+        //the smallest lists go first, so whatever they don't use is left over for the big ones
+        lists.sort(Comparator.comparingInt(column -> ((List<?>) values.get(column)).size()));
+        Map<String, List<List<?>>> pieces = new HashMap<>(lists.size() * 2);
+        Map<String, Integer> padTo = new HashMap<>(lists.size() * 2);
+        for (int i = 0; i < lists.size(); i++) {
+            List<?> all = (List<?>) values.get(lists.get(i));
+            int max = Math.min(maxInListSize, budget / (lists.size() - i));
+            int chunkSize = Math.min(all.size(), max);
+            budget -= paddedSize(chunkSize, max);
+            List<List<?>> split = new ArrayList<>(all.size() / chunkSize + 1);
+            for (int from = 0; from < all.size(); from += chunkSize) {
+                split.add(all.subList(from, Math.min(all.size(), from + chunkSize)));
+            }
+            pieces.put(lists.get(i), split);
+            padTo.put(lists.get(i), max);
+        }
+
+        List<LinkedHashMap<String, Object>> chunks = new ArrayList<>();
+        if (any) {
+            //a row only has to match one column, so the k-th piece of every list can share the k-th query
+            int count = pieces.values().stream().mapToInt(List::size).max().getAsInt();
+            for (int k = 0; k < count; k++) {
+                LinkedHashMap<String, Object> chunk = new LinkedHashMap<>(values.size());
+                for (Map.Entry<String, Object> e : values.entrySet()) {
+                    List<List<?>> split = pieces.get(e.getKey());
+                    if (split == null) {
+                        chunk.put(e.getKey(), e.getValue());
+                    } else if (k < split.size()) {
+                        chunk.put(e.getKey(), pad(split.get(k), padTo.get(e.getKey())));
+                    }
+                }
+                chunks.add(chunk);
+            }
+        } else {
+            //a row has to match every column, so every piece of each list has to meet every piece of the others
+            chunks.add(new LinkedHashMap<>(values));
+            for (String column : lists) {
+                List<LinkedHashMap<String, Object>> crossed = new ArrayList<>(chunks.size() * pieces.get(column).size());
+                for (LinkedHashMap<String, Object> chunk : chunks) {
+                    for (List<?> piece : pieces.get(column)) {
+                        LinkedHashMap<String, Object> next = new LinkedHashMap<>(chunk);
+                        next.put(column, pad(piece, padTo.get(column)));
+                        crossed.add(next);
+                    }
+                }
+                chunks = crossed;
+            }
+        }
+        return chunks;
+    }
+
+    private static List<Object> pad(List<?> values, int max) {
+        int size = paddedSize(values.size(), max);
+        List<Object> padded = new ArrayList<>(size);
+        padded.addAll(values);
+        Object last = values.get(values.size() - 1);
+        while (padded.size() < size) {
+            padded.add(last);
+        }
+        return padded;
+    }
+
+    /**
+     * The next power of two, unless that's over the max, then just the size since it's not getting any bigger.
+     */
+    static int paddedSize(int size, int max) {
+        if (size >= max) {
+            return size;
+        }
+        return Math.min(max, size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1);
+    }
+}
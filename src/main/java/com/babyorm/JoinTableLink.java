@@ -0,0 +1,308 @@
+package com.babyorm;
+
+import com.babyorm.annotation.JoinTable;
+import com.babyorm.util.EntityAccessor;
+import com.babyorm.util.FieldAccessor;
+import com.babyorm.util.SqlGen;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One {@link JoinTable} field, the rows of the join table tie the records of this entity to the records of the prop entity.
+ * <p>
+ * The props for a whole result are loaded together, with one query against the join table and one against the prop's
+ * table, per in list chunk. Writes only add and remove join table rows, the props themselves have to be saved on their own.
+ *
+ * @param <T> The type of entity that has the field
+ */
+class JoinTableLink<T> {
+
+    private final CoreRepo<T> owner;
+    private final Field field;
+    private final FieldAccessor accessor;
+    private final String table, thisColumn, propColumn;
+    private final Field thisField;
+    private final FieldAccessor thisAccessor;
+    private final Class<?> propType;
+    private final boolean isSet, isCollection;
+    private final String selectSql, insertSql, deleteSql;
+    private volatile PropSide prop;
+
+    JoinTableLink(CoreRepo<T> owner, Field field) {
+        JoinTable joinTable = field.getAnnotation(JoinTable.class);
+        this.owner = owner;
+        this.field = field;
+        this.accessor = EntityAccessor.forType(field.getDeclaringClass()).accessor(field);
+        this.table = joinTable.tableName();
+        this.thisColumn = joinTable.thisColumn();
+        this.propColumn = joinTable.propColumn();
+        this.thisField = referencedField(owner, thisColumn, field);
+        this.thisAccessor = EntityAccessor.forType(field.getDeclaringClass()).accessor(thisField);
+        this.isCollection = Collection.class.isAssignableFrom(field.getType());
+        this.isSet = Set.class.isAssignableFrom(field.getType());
+        if (isCollection && !field.getType().isAssignableFrom(isSet ? LinkedHashSet.class : ArrayList.class)) {
+            throw new BabyDBException("JoinTable fields can be a List, Set, or Collection, not a " + field.getType().getSimpleName()
+                    + ": " + describe(field));
+        }
+        this.propType = isCollection ? elementType(field) : field.getType();
+        this.selectSql = SqlGen.select(table, Arrays.asList(thisColumn, propColumn));
+        this.insertSql = SqlGen.insert(table, Arrays.asList(thisColumn, propColumn));
+        LinkedHashMap<String, Object> pair = new LinkedHashMap<>();
+        pair.put(thisColumn, null);
+        pair.put(propColumn, null);
+        this.deleteSql = SqlGen.delete(table) + SqlGen.whereAll(pair);
+    }
+
+    String getTable() {
+        return table;
+    }
+
+    Class<?> getPropType() {
+        return propType;
+    }
+
+    Field getField() {
+        return field;
+    }
+
+    Field getThisField() {
+        return thisField;
+    }
+
+    /**
+     * Load the props for all of the records and set them on the records
+     *
+     * @param conn    The connection the rest of the graph is being read on, or null to check one out
+     * @param context What's already been read for the graph the records are part of
+     */
+    void load(CachedConnection conn, List<?> records, LoadContext context) {
+        Map<Object, List<Object>> recordsByKey = new LinkedHashMap<>();
+        for (Object record : records) {
+            Object key = thisAccessor.get(record);
+            if (key == null) {
+                accessor.set(record, wrap(Collections.emptyList()));
+            } else {
+                recordsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(record);
+            }
+        }
+        if (recordsByKey.isEmpty()) {
+            return;
+        }
+        PropSide prop = prop();
+        Map<Object, Set<Object>> links;
+        try {
+            if (conn != null) {
+                links = linkedKeys(conn, recordsByKey.keySet());
+            } else {
+                try (CachedConnection own = owner.getCachedConnection()) {
+                    links = linkedKeys(own, recordsByKey.keySet());
+                }
+            }
+        } catch (SQLException e) {
+            throw new BabyDBException("Failed to read join table " + table, e);
+        }
+        Set<Object> propKeys = new LinkedHashSet<>();
+        links.values().forEach(propKeys::addAll);
+        Map<Object, ?> props = propKeys.isEmpty() ? Collections.emptyMap() : prop.repo.loadBy(conn, prop.field.getName(), propKeys, context);
+        recordsByKey.forEach((key, waiting) -> {
+            List<Object> linked = links.getOrDefault(key, Collections.emptySet()).stream()
+                    .map(props::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            for (Object record : waiting) {
+                accessor.set(record, wrap(linked));
+            }
+        });
+    }
+
+    /**
+     * Add and remove join table rows so they match what's on the records, using one batch for the adds and one for the
+     * removes. Records with a null field are left alone, so a record that was only partly read doesn't lose its links.
+     *
+     * @param thisKeys How to get the value of this side's column for each record
+     */
+    void write(CachedConnection conn, Collection<T> records, Function<T, Object> thisKeys) throws SQLException {
+        Map<Object, Set<Object>> wanted = new LinkedHashMap<>();
+        for (T record : records) {
+            Object value = accessor.get(record);
+            if (value == null) {
+                continue;
+            }
+            Object key = thisKeys.apply(record);
+            if (key == null) {
+                throw new BabyDBException("Can't link a record without a value for " + thisField.getName() + ": " + describe(field));
+            }
+            wanted.put(key, propKeys(value));
+        }
+        if (wanted.isEmpty()) {
+            return;
+        }
+        conn.wrote(table);
+        Map<Object, Set<Object>> existing = linkedKeys(conn, wanted.keySet());
+        executeBatch(conn, deleteSql, existing, wanted);
+        executeBatch(conn, insertSql, wanted, existing);
+    }
+
+    /**
+     * Remove every join table row for the records, so they can be deleted
+     */
+    void unlink(CachedConnection conn, Collection<T> records) throws SQLException {
+        List<Object> keys = records.stream().map(thisAccessor::get).filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (keys.isEmpty()) {
+            return;
+        }
+        conn.wrote(table);
+        for (LinkedHashMap<String, Object> chunk : split(conn, keys)) {
+            owner.getEntityMapper().prepare(conn, SqlGen.delete(table) + SqlGen.whereAll(chunk), false, chunk.values().toArray()).executeUpdate();
+        }
+    }
+
+    /**
+     * Remove every join table row for the records matching the where clause, so they can be deleted, without reading
+     * the records first
+     *
+     * @param where  The where clause the records are about to be deleted with
+     * @param values The values to bind to the where clause
+     */
+    void unlinkWhere(CachedConnection conn, String where, Object[] values) throws SQLException {
+        conn.wrote(table);
+        String keys = SqlGen.select(owner.getTableFullName(), Collections.singletonList(owner.fieldNameToColName.get(thisField.getName())));
+        owner.getEntityMapper().prepare(conn, SqlGen.delete(table) + " where " + thisColumn + " in (" + keys + where + ")", false, values)
+                .executeUpdate();
+    }
+
+    /**
+     * Run the sql for every pair in {@code from} that isn't in {@code except}
+     */
+    private static void executeBatch(CachedConnection conn, String sql, Map<Object, Set<Object>> from, Map<Object, Set<Object>> except) throws SQLException {
+        PreparedStatement st = null;
+        for (Map.Entry<Object, Set<Object>> e : from.entrySet()) {
+            Set<Object> skip = except.getOrDefault(e.getKey(), Collections.emptySet());
+            for (Object propKey : e.getValue()) {
+                if (!skip.contains(propKey)) {
+                    if (st == null) {
+                        st = conn.prepare(sql, false);
+                    }
+                    EntityMapper.bindArgs(st, 1, e.getKey(), propKey);
+                    st.addBatch();
+                }
+            }
+        }
+        if (st != null) {
+            st.executeBatch();
+        }
+    }
+
+    /**
+     * The prop keys linked to each of this side's keys, in the order the database handed them back
+     */
+    private Map<Object, Set<Object>> linkedKeys(CachedConnection conn, Collection<Object> keys) throws SQLException {
+        PropSide prop = prop();
+        Map<Object, Set<Object>> links = new HashMap<>(keys.size() * 2);
+        EntityMapper<T> ownerMapper = owner.getEntityMapper();
+        for (LinkedHashMap<String, Object> chunk : split(conn, new ArrayList<>(keys))) {
+            PreparedStatement st = ownerMapper.prepare(conn, selectSql + SqlGen.whereAll(chunk), false, chunk.values().toArray());
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    links.computeIfAbsent(ownerMapper.getResultValueByPosition(thisField, rs, 1), k -> new LinkedHashSet<>())
+                            .add(prop.mapper.getResultValueByPosition(prop.field, rs, 2));
+                }
+            }
+        }
+        return links;
+    }
+
+    private List<LinkedHashMap<String, Object>> split(CachedConnection conn, List<Object> keys) throws SQLException {
+        Dialect dialect = conn.getDialect();
+        return InLists.split(Collections.singletonMap(thisColumn, keys), false, dialect.getMaxInListSize(), dialect.getMaxBindVariables());
+    }
+
+    private Set<Object> propKeys(Object value) {
+        PropSide prop = prop();
+        Collection<?> props = isCollection ? (Collection<?>) value : Collections.singletonList(value);
+        Set<Object> keys = new LinkedHashSet<>();
+        for (Object p : props) {
+            Object key = p == null ? null : prop.accessor.get(p);
+            if (key == null) {
+                throw new BabyDBException("Save the " + propType.getSimpleName() + " before linking to it, it needs a value for "
+                        + prop.field.getName() + ": " + describe(field));
+            }
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    private Object wrap(List<Object> props) {
+        if (isSet) {
+            return new LinkedHashSet<>(props);
+        } else if (isCollection) {
+            return new ArrayList<>(props);
+        } else if (props.size() > 1) {
+            throw new BabyDBException("Multiple rows found for single row query, use a collection for: " + describe(field));
+        }
+        return props.isEmpty() ? null : props.get(0);
+    }
+
+    /**
+     * The prop's repo can't be looked up while this repo is being built, it may not exist yet, and it may need us.
+     */
+    private PropSide prop() {
+        PropSide p = prop;
+        if (p == null) {
+            p = prop = new PropSide(BabyRepo.forType(propType));
+        }
+        return p;
+    }
+
+    private class PropSide {
+        private final BabyRepo<?> repo;
+        private final EntityMapper<?> mapper;
+        private final Field field;
+        private final FieldAccessor accessor;
+
+        PropSide(BabyRepo<?> repo) {
+            this.repo = repo;
+            this.mapper = repo.getEntityMapper();
+            this.field = referencedField(repo, propColumn, JoinTableLink.this.field);
+            this.accessor = EntityAccessor.forType(propType).accessor(field);
+        }
+    }
+
+    /**
+     * The field a join table column points at: the field for the column with the same name, if there is one,
+     * otherwise the primary key
+     */
+    private static Field referencedField(CoreRepo<?> repo, String column, Field joinField) {
+        String fieldName = repo.colNameToFieldName.get(column.toUpperCase());
+        if (fieldName != null) {
+            return repo.getFields().stream().filter(f -> f.getName().equals(fieldName)).findFirst().get();
+        }
+        if (repo.getKeyFields().size() != 1) {
+            throw new BabyDBException("The join table column " + column + " has to match a column, or point at a single column primary key: " + describe(joinField));
+        }
+        return repo.getKeyFields().get(0);
+    }
+
+    private static Class<?> elementType(Field field) {
+        Type generic = field.getGenericType();
+        if (generic instanceof ParameterizedType) {
+            Type element = ((ParameterizedType) generic).getActualTypeArguments()[0];
+            if (element instanceof Class) {
+                return (Class<?>) element;
+            }
+        }
+        throw new BabyDBException("JoinTable collections need to say what they hold, like List<Prop>: " + describe(field));
+    }
+
+    private static String describe(Field field) {
+        return field.getDeclaringClass().getCanonicalName() + "#" + field.getName();
+    }
+}
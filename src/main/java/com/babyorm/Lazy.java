@@ -0,0 +1,105 @@
+package com.babyorm;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A @JoinTo child that isn't loaded until someone asks for it. Declare the field as {@code Lazy<Child>} instead of
+ * {@code Child} to opt in.
+ * <p>
+ * Every lazy child mapped from the same result is loaded together the first time any of them is asked for, so going
+ * through a list of records and touching each of their children is still one query, not one per record.
+ *
+ * @param <C> The type of child
+ */
+public final class Lazy<C> {
+
+    private final Object key;
+    private volatile Batch batch;
+    private C value;
+
+    private Lazy(Object key, C value, Batch batch) {
+        this.key = key;
+        this.value = value;
+        this.batch = batch;
+    }
+
+    /**
+     * A child that's already here, for setting a child on a record you're about to save
+     */
+    public static <C> Lazy<C> of(C value) {
+        return new Lazy<>(null, value, null);
+    }
+
+    /**
+     * Get the child, loading it along with the rest of its batch if it hasn't been loaded yet
+     *
+     * @return The child, or null if there isn't one
+     */
+    public C get() {
+        Batch b = batch;
+        if (b != null) {
+            b.load();
+        }
+        return value;
+    }
+
+    /**
+     * Whether {@link #get()} will return without going to the database
+     */
+    public boolean isLoaded() {
+        return batch == null;
+    }
+
+    /**
+     * The value of the column the child is joined on, without loading the child
+     *
+     * @param refValue How to get the joined on value off of a child that's already loaded
+     */
+    Object key(Function<Object, Object> refValue) {
+        if (!isLoaded()) {
+            return key;
+        }
+        return value == null ? null : refValue.apply(value);
+    }
+
+    /**
+     * The lazy children of one kind from one result, waiting to be loaded together
+     */
+    static class Batch {
+        private final Function<Set<Object>, Map<Object, ?>> loader;
+        private List<Lazy<?>> waiting = new ArrayList<>();
+
+        /**
+         * @param loader Loads the children for the keys, by key
+         */
+        Batch(Function<Set<Object>, Map<Object, ?>> loader) {
+            this.loader = loader;
+        }
+
+        <C> Lazy<C> add(Object key) {
+            Lazy<C> lazy = new Lazy<>(key, null, this);
+            waiting.add(lazy);
+            return lazy;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized void load() {
+            if (waiting == null) {
+                return;
+            }
+            Set<Object> keys = new LinkedHashSet<>();
+            waiting.forEach(l -> keys.add(l.key));
+            Map<Object, ?> byKey = loader.apply(keys);
+            for (Lazy<?> lazy : waiting) {
+                ((Lazy<Object>) lazy).value = byKey.get(lazy.key);
+                lazy.batch = null;
+            }
+            waiting = null;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.babyorm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Everything read while building the object graph for one query, so each record is only read and created once no
+ * matter how many others point at it, and a circular @JoinTo stops at the records it already has instead of going
+ * around forever.
+ * <p>
+ * Records are remembered by the value of the field they were looked up by, and by their primary key when it's a single
+ * column. It's thread safe since the chunks of a big in list can be read in parallel.
+ */
+final class LoadContext {
+
+    private final Map<Class<?>, Map<String, Map<Object, Object>>> loaded = new ConcurrentHashMap<>();
+
+    /**
+     * @return The record of the type that has the value for the field, or null if it hasn't been read yet
+     */
+    Object get(Class<?> type, String fieldName, Object value) {
+        Map<String, Map<Object, Object>> byField = loaded.get(type);
+        Map<Object, Object> byValue = byField == null ? null : byField.get(fieldName);
+        return byValue == null ? null : byValue.get(value);
+    }
+
+    /**
+     * Remember the record, unless there's already one for the same value
+     *
+     * @return Whichever record is remembered for the value now
+     */
+    Object remember(Class<?> type, String fieldName, Object value, Object record) {
+        Object known = loaded.computeIfAbsent(type, t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(fieldName, f -> new ConcurrentHashMap<>())
+                .putIfAbsent(value, record);
+        return known == null ? record : known;
+    }
+}
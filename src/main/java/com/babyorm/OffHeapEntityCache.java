@@ -0,0 +1,361 @@
+package com.babyorm;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Whole records by primary key, kept as bytes in direct buffers instead of as objects on the heap, for
+ * {@link CoreRepo#setOffHeapCache(long)}. Millions of cached rows are a few big buffers and a few big arrays as far as
+ * the garbage collector is concerned, instead of millions of objects to trace.
+ * <p>
+ * Rows are the column values from the entity's mapping plan (see {@link EntityMapper#columnValues(Object)}) run
+ * through {@link RowCodec}, written one after the other into a ring of buffers that adds up to the budget. Once the
+ * ring comes back around the oldest rows are dropped from the index and written over, so the budget is never exceeded
+ * and there's no free list to keep up. The index is an open addressing hash table of where each key's row starts, in
+ * plain arrays.
+ * <p>
+ * Reads don't take the lock, they read optimistically and try again with it if a write got in the way.
+ * Rows are decoded into new records on every read, children are loaded again through the child's repo, so cache the
+ * children's repos too.
+ *
+ * @param <T> The type of entity
+ */
+final class OffHeapEntityCache<T> implements RecordCache<T> {
+
+    private static final long EMPTY = -1, REMOVED = -2;
+    private static final int MAX_SEGMENT = 1 << 30;
+    private static final int HEADER = 8;
+
+    private final EntityMapper<T> mapper;
+    private final ByteBuffer[] segments;
+    private final int segmentSize;
+    private final long capacity;
+    private final StampedLock lock = new StampedLock();
+    private final AtomicLong writes = new AtomicLong();
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+    //everything below is guarded by the lock
+    /**
+     * Where the next row goes, and where the oldest row that hasn't been written over starts. Both only ever go up,
+     * the spot in the buffers is the remainder after dividing by the capacity.
+     */
+    private long cursor, tail;
+    private int[] hashes = new int[1024];
+    private long[] positions = emptyPositions(1024);
+    private int used;
+
+    /**
+     * @param maxBytes How big the buffers can get, in total. It's split into as few equal buffers of up to a gigabyte
+     *                 as it takes, so at most a few bytes of it go unused.
+     */
+    OffHeapEntityCache(EntityMapper<T> mapper, long maxBytes) {
+        this.mapper = mapper;
+        int count = (int) ((maxBytes + MAX_SEGMENT - 1) / MAX_SEGMENT);
+        this.segmentSize = (int) (maxBytes / count);
+        this.segments = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = ByteBuffer.allocateDirect(segmentSize);
+        }
+        this.capacity = (long) segmentSize * count;
+    }
+
+    @Override
+    public T get(List<Object> key, CachedConnection conn) {
+        byte[] keyBytes = RowCodec.encode(key.toArray());
+        int hash = Arrays.hashCode(keyBytes);
+        byte[] row = null;
+        long stamp = lock.tryOptimisticRead();
+        try {
+            row = readRow(keyBytes, hash, stamp);
+        } catch (RuntimeException e) {
+            //a write moved things around mid read, the validate below fails
+        }
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                row = readRow(keyBytes, hash, stamp);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (row == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return mapper.fromColumnValues(RowCodec.decode(row), conn);
+    }
+
+    @Override
+    public long stamp() {
+        return writes.get();
+    }
+
+    @Override
+    public void put(List<Object> key, T record, long stamp) {
+        if (key == null || writes.get() != stamp) {
+            return;
+        }
+        byte[] keyBytes = RowCodec.encode(key.toArray());
+        byte[] row = RowCodec.encode(mapper.columnValues(record));
+        int length = HEADER + keyBytes.length + row.length;
+        if (length > segmentSize) {
+            return;
+        }
+        int hash = Arrays.hashCode(keyBytes);
+        long lockStamp = lock.writeLock();
+        try {
+            //checked again under the lock, so an invalidate can't land between the check and the write
+            if (writes.get() != stamp) {
+                return;
+            }
+            remove(keyBytes, hash);
+            long position = reserve(length);
+            ByteBuffer segment = segment(position);
+            int offset = offset(position);
+            segment.putInt(offset, keyBytes.length);
+            segment.putInt(offset + 4, row.length);
+            write(segment, offset + HEADER, keyBytes);
+            write(segment, offset + HEADER + keyBytes.length, row);
+            insert(hash, position);
+        } finally {
+            lock.unlockWrite(lockStamp);
+        }
+    }
+
+    @Override
+    public void invalidate(List<Object> key) {
+        byte[] keyBytes = key == null ? null : RowCodec.encode(key.toArray());
+        long stamp = lock.writeLock();
+        try {
+            writes.incrementAndGet();
+            if (keyBytes != null) {
+                remove(keyBytes, Arrays.hashCode(keyBytes));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            writes.incrementAndGet();
+            hashes = new int[1024];
+            positions = emptyPositions(1024);
+            used = 0;
+            cursor = tail = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public CacheStats stats() {
+        long stamp = lock.readLock();
+        try {
+            long live = 0, bytes = 0;
+            for (long position : positions) {
+                if (position >= 0) {
+                    live++;
+                    bytes += length(position);
+                }
+            }
+            return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), live, bytes);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Find the key's row and copy it out
+     *
+     * @param stamp The stamp the read is under, checked before trusting the row's length enough to allocate for it
+     * @return The row's bytes, or null if the key isn't in the index, its row has been written over, or an optimistic
+     * read was interrupted by a write
+     */
+    private byte[] readRow(byte[] keyBytes, int hash, long stamp) {
+        int slot = find(keyBytes, hash);
+        if (slot < 0) {
+            return null;
+        }
+        long position = positions[slot];
+        ByteBuffer segment = segment(position);
+        int offset = offset(position);
+        int length = segment.getInt(offset + 4);
+        //an optimistic read can see a row that's half written, and its length could be anything
+        if (!lock.validate(stamp) || length < 0 || length > segmentSize - offset - HEADER - keyBytes.length) {
+            return null;
+        }
+        byte[] row = new byte[length];
+        read(segment, offset + HEADER + keyBytes.length, row);
+        //the ring could have come back around while the row was being copied
+        return alive(position) ? row : null;
+    }
+
+    /**
+     * @return The slot the key is in, or -1
+     */
+    private int find(byte[] keyBytes, int hash) {
+        long[] positions = this.positions;
+        int[] hashes = this.hashes;
+        int mask = positions.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long position = positions[slot];
+            if (position == EMPTY) {
+                return -1;
+            }
+            if (position >= 0 && hashes[slot] == hash && alive(position) && sameKey(position, keyBytes)) {
+                return slot;
+            }
+        }
+    }
+
+    private void remove(byte[] keyBytes, int hash) {
+        int slot = find(keyBytes, hash);
+        if (slot >= 0) {
+            positions[slot] = REMOVED;
+        }
+    }
+
+    private void insert(int hash, long position) {
+        if ((used + 1) * 2 > positions.length) {
+            rehash();
+        }
+        int mask = positions.length - 1;
+        int slot = hash & mask;
+        while (positions[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        if (positions[slot] == EMPTY) {
+            used++;
+        }
+        hashes[slot] = hash;
+        positions[slot] = position;
+    }
+
+    /**
+     * Build the index again without the removed keys, growing it if it's still half full after that
+     */
+    private void rehash() {
+        long[] oldPositions = positions;
+        int[] oldHashes = hashes;
+        int live = 0;
+        for (long position : oldPositions) {
+            if (position >= 0) {
+                live++;
+            }
+        }
+        int size = oldPositions.length;
+        while ((live + 1) * 2 > size) {
+            size *= 2;
+        }
+        positions = emptyPositions(size);
+        hashes = new int[size];
+        used = 0;
+        for (int i = 0; i < oldPositions.length; i++) {
+            if (oldPositions[i] >= 0) {
+                insert(oldHashes[i], oldPositions[i]);
+            }
+        }
+    }
+
+    /**
+     * Move the cursor past room for the row, skipping to the next segment if it won't fit at the end of this one.
+     * Whatever rows were in the way are dropped from the index first.
+     *
+     * @return Where the row goes
+     */
+    private long reserve(int length) {
+        int offset = offset(cursor);
+        int skipped = offset + length > segmentSize ? segmentSize - offset : 0;
+        long position = cursor + skipped;
+        drop(position + length - capacity);
+        if (skipped >= 4) {
+            //so whoever drops this part of the ring later knows there's no row here
+            segment(cursor).putInt(offset, -1);
+        }
+        cursor = position + length;
+        return position;
+    }
+
+    /**
+     * Drop every row that starts before the position from the index, walking them oldest first
+     */
+    private void drop(long before) {
+        while (tail < before) {
+            ByteBuffer segment = segment(tail);
+            int offset = offset(tail);
+            if (segmentSize - offset < HEADER || segment.getInt(offset) < 0) {
+                tail += segmentSize - offset;
+                continue;
+            }
+            byte[] keyBytes = new byte[segment.getInt(offset)];
+            read(segment, offset + HEADER, keyBytes);
+            int slot = find(keyBytes, Arrays.hashCode(keyBytes));
+            if (slot >= 0 && positions[slot] == tail) {
+                positions[slot] = REMOVED;
+                evictions.increment();
+            }
+            tail += length(tail);
+        }
+    }
+
+    /**
+     * Whether the row at the position hasn't been written over yet
+     */
+    private boolean alive(long position) {
+        return position >= cursor - capacity;
+    }
+
+    private int length(long position) {
+        ByteBuffer segment = segment(position);
+        int offset = offset(position);
+        return HEADER + segment.getInt(offset) + segment.getInt(offset + 4);
+    }
+
+    private boolean sameKey(long position, byte[] keyBytes) {
+        ByteBuffer segment = segment(position);
+        int offset = offset(position);
+        if (segment.getInt(offset) != keyBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (segment.get(offset + HEADER + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ByteBuffer segment(long position) {
+        return segments[(int) ((position % capacity) / segmentSize)];
+    }
+
+    private int offset(long position) {
+        return (int) ((position % capacity) % segmentSize);
+    }
+
+    private static void write(ByteBuffer segment, int offset, byte[] bytes) {
+        ByteBuffer view = segment.duplicate();
+        view.position(offset);
+        view.put(bytes);
+    }
+
+    private static void read(ByteBuffer segment, int offset, byte[] bytes) {
+        ByteBuffer view = segment.duplicate();
+        view.position(offset);
+        view.get(bytes);
+    }
+
+    private static long[] emptyPositions(int size) {
+        long[] positions = new long[size];
+        Arrays.fill(positions, EMPTY);
+        return positions;
+    }
+}
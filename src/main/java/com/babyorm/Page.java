@@ -0,0 +1,57 @@
+package com.babyorm;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of records from {@link BabyRepo#page(List, List, int)}, along with where to pick up for the next one.
+ * <p>
+ * The next page starts right after the last record on this one instead of skipping over an offset, so the
+ * thousandth page is just as quick to get as the first.
+ *
+ * @param <T> The type of entity on the page
+ */
+public class Page<T> {
+
+    private final List<T> records;
+    private final List<String> orderBy;
+    private final List<Object> nextKey;
+    private final int pageSize;
+
+    Page(List<T> records, List<String> orderBy, List<Object> nextKey, int pageSize) {
+        this.records = Collections.unmodifiableList(records);
+        this.orderBy = Collections.unmodifiableList(orderBy);
+        this.nextKey = nextKey == null ? null : Collections.unmodifiableList(nextKey);
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * The records on this page, in order
+     */
+    public List<T> getRecords() {
+        return records;
+    }
+
+    /**
+     * The columns the records are ordered by, including the primary key columns that were added on to make the order
+     * unique
+     */
+    public List<String> getOrderBy() {
+        return orderBy;
+    }
+
+    /**
+     * The values of the order by columns for the last record on this page, or null if this is the last page
+     */
+    public List<Object> getNextKey() {
+        return nextKey;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public boolean hasNext() {
+        return nextKey != null;
+    }
+}
@@ -0,0 +1,90 @@
+package com.babyorm;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A query that only selects some of the columns, get one with {@link BabyRepo#select(String...)}
+ * <p>
+ * By default you get back entities with only the selected fields filled in, everything else is left however the
+ * entity's constructor left it. Use {@link #as(Class)} to get something else back instead.
+ *
+ * @param <T> The type of entity the repo is for
+ * @param <R> The type you get back
+ */
+public class Projection<T, R> {
+
+    private final CoreRepo<T> repo;
+    private final CoreRepo<T>.SelectPlan plan;
+    private final Function<T, R> adapter;
+
+    Projection(CoreRepo<T> repo, CoreRepo<T>.SelectPlan plan, Function<T, R> adapter) {
+        this.repo = repo;
+        this.plan = plan;
+        this.adapter = adapter;
+    }
+
+    /**
+     * Get the selected fields back as some other type.
+     * <p>
+     * Interfaces get a getter for each selected field, either {@code getName()}, {@code isName()} or just
+     * {@code name()}, and every method on the interface has to be one of those or a default method.
+     * Classes need a no arg constructor and a field with the same name and type for each selected field.
+     */
+    public <D> Projection<T, D> as(Class<D> type) {
+        return new Projection<>(repo, plan, plan.getSelection().adapter(type));
+    }
+
+    /**
+     * select just these columns from the whole table
+     */
+    public List<R> all() {
+        return adapt(repo.getSome(plan, null, null, true));
+    }
+
+    /**
+     * Get one record by a single column. See {@link BabyRepo#getOneBy(String, Object)}
+     */
+    public R oneBy(String field, Object value) {
+        return oneByAll(Collections.singletonMap(field, value));
+    }
+
+    /**
+     * Get one record that matches ALL of the columns. See {@link BabyRepo#getOneByAll(Map)}
+     */
+    @SuppressWarnings("unchecked")
+    public R oneByAll(Map<String, ?> columnValueMap) {
+        T found = repo.getSomeWhere(plan, repo.keysToColumnNames(columnValueMap), false, false).get(0);
+        return found == null || adapter == null ? (R) found : adapter.apply(found);
+    }
+
+    /**
+     * Get the records that match a single column. See {@link BabyRepo#getManyBy(String, Object)}
+     */
+    public List<R> manyBy(String field, Object value) {
+        return manyByAll(Collections.singletonMap(field, value));
+    }
+
+    /**
+     * Get the records that match ALL of the columns. See {@link BabyRepo#getManyByAll(Map)}
+     */
+    public List<R> manyByAll(Map<String, ?> columnValueMap) {
+        return adapt(repo.getSomeWhere(plan, repo.keysToColumnNames(columnValueMap), false, true));
+    }
+
+    /**
+     * Get the records that match ANY of the columns. See {@link BabyRepo#getManyByAny(Map)}.
+     * Unless the primary key is selected, the same record can come back more than once when a big in list gets split up.
+     */
+    public List<R> manyByAny(Map<String, ?> columnValueMap) {
+        return adapt(repo.getSomeWhere(plan, repo.keysToColumnNames(columnValueMap), true, true));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<R> adapt(List<T> found) {
+        return adapter == null ? (List<R>) found : found.stream().map(adapter).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,204 @@
+package com.babyorm;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Query results by their sql and bind values, for {@link CoreRepo#setQueryCache(long)}.
+ * <p>
+ * Each result remembers the version of every table it could have read from (see {@link TableVersions}), and is
+ * thrown out the next time it's asked for if any of them have moved. Results are held to a budget of roughly so many
+ * bytes, once it's over whoever puts the next result throws out the stale ones, then the least recently used, until
+ * it's back under nine tenths of the budget.
+ * <p>
+ * Like {@link EntityCache}, reads don't lock and the records go in and come out as copies.
+ *
+ * @param <T> The type of entity
+ */
+final class QueryCache<T> {
+
+    private final RecordCopier<T> copier;
+    private final long maxBytes;
+    private final Map<Key, Entry<T>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final ReentrantLock evicting = new ReentrantLock();
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+    QueryCache(RecordCopier<T> copier, long maxBytes) {
+        this.copier = copier;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return Copies of the records for the query, or null if it isn't cached or the tables have changed since
+     */
+    List<T> get(Key key) {
+        Entry<T> entry = entries.get(key);
+        if (entry != null && !entry.versions.current()) {
+            remove(key, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        entry.lastUsed = System.nanoTime();
+        hits.increment();
+        List<T> copies = new ArrayList<>(entry.records.size());
+        entry.records.forEach(r -> copies.add(copier.copy(r)));
+        return copies;
+    }
+
+    /**
+     * Where the tables are at, take this before running the query and hand it to {@link #put(Key, Versions, List)}
+     */
+    Versions versions(Collection<String> tables) {
+        return new Versions(tables);
+    }
+
+    /**
+     * Cache copies of the records the query found, if the tables haven't changed since it started and they fit
+     */
+    void put(Key key, Versions versions, List<T> records) {
+        long size = key.size();
+        for (T record : records) {
+            size += copier.sizeOf(record);
+        }
+        if (size > maxBytes || !versions.current()) {
+            return;
+        }
+        List<T> copies = new ArrayList<>(records.size());
+        records.forEach(r -> copies.add(copier.copy(r)));
+        Entry<T> entry = new Entry<>(Collections.unmodifiableList(copies), versions, size);
+        Entry<T> replaced = entries.put(key, entry);
+        if (replaced != null) {
+            bytes.addAndGet(-replaced.bytes);
+        }
+        if (bytes.addAndGet(size) > maxBytes && evicting.tryLock()) {
+            try {
+                evict();
+            } finally {
+                evicting.unlock();
+            }
+        }
+    }
+
+    void clear() {
+        for (Map.Entry<Key, Entry<T>> e : entries.entrySet()) {
+            remove(e.getKey(), e.getValue());
+        }
+    }
+
+    CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), entries.size(), bytes.get());
+    }
+
+    private void evict() {
+        List<Map.Entry<Key, Entry<T>>> live = new ArrayList<>(entries.size());
+        for (Map.Entry<Key, Entry<T>> e : entries.entrySet()) {
+            if (!e.getValue().versions.current()) {
+                remove(e.getKey(), e.getValue());
+            } else {
+                live.add(e);
+            }
+        }
+        live.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+        long target = maxBytes - maxBytes / 10;
+        for (Iterator<Map.Entry<Key, Entry<T>>> it = live.iterator(); it.hasNext() && bytes.get() > target; ) {
+            Map.Entry<Key, Entry<T>> e = it.next();
+            if (remove(e.getKey(), e.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private boolean remove(Key key, Entry<T> entry) {
+        if (entries.remove(key, entry)) {
+            bytes.addAndGet(-entry.bytes);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The sql and bind values of a query. Collections are copied into lists, so changing the collection that was
+     * passed in doesn't change the key, and a set finds the same result as a list with the same values in it.
+     */
+    static final class Key {
+        private final String sql;
+        private final Object[] binds;
+        private final int hash;
+
+        Key(String sql, Object[] binds) {
+            this.sql = sql;
+            this.binds = binds == null ? new Object[0] : binds.clone();
+            for (int i = 0; i < this.binds.length; i++) {
+                if (this.binds[i] instanceof Collection) {
+                    this.binds[i] = new ArrayList<>((Collection<?>) this.binds[i]);
+                }
+            }
+            this.hash = 31 * sql.hashCode() + Arrays.deepHashCode(this.binds);
+        }
+
+        private long size() {
+            return 48 + 2L * sql.length() + 24L * binds.length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            return hash == that.hash && sql.equals(that.sql) && Arrays.deepEquals(binds, that.binds);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * The versions of a set of tables at one point in time
+     */
+    static final class Versions {
+        private final AtomicLong[] counters;
+        private final long[] seen;
+
+        private Versions(Collection<String> tables) {
+            counters = tables.stream().map(TableVersions::of).toArray(AtomicLong[]::new);
+            seen = new long[counters.length];
+            for (int i = 0; i < counters.length; i++) {
+                seen[i] = counters[i].get();
+            }
+        }
+
+        /**
+         * Whether none of the tables have changed since
+         */
+        boolean current() {
+            for (int i = 0; i < counters.length; i++) {
+                if (counters[i].get() != seen[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Entry<T> {
+        private final List<T> records;
+        private final Versions versions;
+        private final long bytes;
+        private volatile long lastUsed = System.nanoTime();
+
+        Entry(List<T> records, Versions versions, long bytes) {
+            this.records = records;
+            this.versions = versions;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.babyorm;
+
+import java.util.List;
+
+/**
+ * Where a repo keeps whole records by primary key, on the heap ({@link EntityCache}) or off of it
+ * ({@link OffHeapEntityCache}). Keys come from {@link EntityCache#key(List)}.
+ *
+ * @param <T> The type of entity
+ */
+interface RecordCache<T> {
+
+    /**
+     * @param conn The connection to load the record's children on if they aren't cached along with it, or null to
+     *             check one out
+     * @return A record of its own for the key, or null if it isn't here
+     */
+    T get(List<Object> key, CachedConnection conn);
+
+    /**
+     * Where the cache is at, take this before reading a record from the database and hand it to
+     * {@link #put(List, Object, long)} afterwards
+     */
+    long stamp();
+
+    /**
+     * Cache the record that was just read, unless something was changed after the read started, then there's no
+     * telling whether the record is from before or after the change.
+     *
+     * @param stamp What {@link #stamp()} was before the record was read
+     */
+    void put(List<Object> key, T record, long stamp);
+
+    /**
+     * Drop the record for the key, call this after the change is committed
+     */
+    void invalidate(List<Object> key);
+
+    /**
+     * Drop everything, for when there's no telling which records changed
+     */
+    void clear();
+
+    CacheStats stats();
+}
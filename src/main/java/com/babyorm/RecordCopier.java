@@ -0,0 +1,68 @@
+package com.babyorm;
+
+import com.babyorm.util.EntityAccessor;
+
+import java.lang.reflect.Field;
+import java.util.*;
+
+/**
+ * Makes shallow copies of records, for the caches to hand out so nobody can change what's cached by changing the
+ * record they were given. Children are shared, but the collections holding them are copied.
+ *
+ * @param <T> The type of entity
+ */
+final class RecordCopier<T> {
+
+    private final EntityAccessor<T> accessor;
+    private final List<Field> fields;
+
+    /**
+     * @param fields Every field to copy
+     */
+    RecordCopier(EntityAccessor<T> accessor, List<Field> fields) {
+        this.accessor = accessor;
+        this.fields = fields;
+    }
+
+    @SuppressWarnings("unchecked")
+    T copy(T record) {
+        if (record == null) {
+            return null;
+        }
+        T copy = accessor.newInstance();
+        for (Field field : fields) {
+            Object value = accessor.get(field, record);
+            if (value instanceof Set && field.getType().isAssignableFrom(LinkedHashSet.class)) {
+                value = new LinkedHashSet<>((Set<Object>) value);
+            } else if (value instanceof List && field.getType().isAssignableFrom(ArrayList.class)) {
+                value = new ArrayList<>((List<Object>) value);
+            }
+            accessor.set(field, copy, value);
+        }
+        return copy;
+    }
+
+    /**
+     * A rough guess at how many bytes the record takes up, not counting its children since they're shared
+     */
+    long sizeOf(T record) {
+        if (record == null) {
+            return 8;
+        }
+        long size = 16;
+        for (Field field : fields) {
+            Object value = accessor.get(field, record);
+            size += 8;
+            if (value instanceof CharSequence) {
+                size += 40 + 2L * ((CharSequence) value).length();
+            } else if (value instanceof byte[]) {
+                size += 16 + ((byte[]) value).length;
+            } else if (value instanceof Collection) {
+                size += 32 + 8L * ((Collection<?>) value).size();
+            } else if (value != null) {
+                size += 24;
+            }
+        }
+        return size;
+    }
+}
@@ -1,8 +1,12 @@
 package com.babyorm;
 
+import com.babyorm.annotation.JoinTo;
+
 import java.lang.reflect.Field;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Abstract class for methods related only to handling joins to other entities
@@ -11,11 +15,12 @@ public abstract class RelationshipHandlingRepo<T> extends CoreRepo<T> {
 
     private Map<Class<?>, Map<String, Field>> relationshipJoinKeys = new HashMap<>();
     private Map<String, Class<?>> colOrFieldNameToClass = new HashMap<>();
+    private volatile boolean joinFetch;
+    private volatile SelectPlan joinPlan;
 
     protected RelationshipHandlingRepo(Class<T> entityType, ConnectionSupplier connectionSupplier) {
         super(entityType, connectionSupplier);
     }
-    //provide the necessary query methods that take a connection object to re-use for down stream sql calls
 
     protected Class<?> getColumnClass(String name){
         return colOrFieldNameToClass.computeIfAbsent(name, s-> {
@@ -26,4 +31,61 @@ public abstract class RelationshipHandlingRepo<T> extends CoreRepo<T> {
             }
         });
     }
+
+    /**
+     * Load the @JoinTo children in the same query as the records by left joining their tables in, instead of with
+     * another query afterwards. That's one round trip instead of two, which adds up when getting one record at a time.
+     * Only the direct children are joined in, their own children are still loaded with separate queries.
+     */
+    public void setJoinFetch(boolean joinFetch) {
+        this.joinFetch = joinFetch;
+    }
+
+    @Override
+    SelectPlan readPlan() {
+        if (!joinFetch) {
+            return super.readPlan();
+        }
+        if (joinPlan == null) {
+            //the children's repos may not exist until now
+            joinPlan = buildJoinPlan();
+        }
+        return joinPlan;
+    }
+
+    /**
+     * The where clause goes inside of a derived table so it doesn't have to know about the joined tables, like:
+     * {@code select b0.*,j1.pk as j1_pk,... from (select * from baby where name = ?) b0 left join parent j1 on b0.parent = j1.pk}
+     */
+    private SelectPlan buildJoinPlan() {
+        List<Field> children = getEntityMapper().childFields();
+        if (children.isEmpty()) {
+            return super.readPlan();
+        }
+        StringBuilder select = new StringBuilder("select b0.*");
+        StringBuilder joins = new StringBuilder(") b0");
+        Map<Field, String> prefixes = new HashMap<>();
+        for (int i = 0; i < children.size(); i++) {
+            Field field = children.get(i);
+            String ref = Optional.ofNullable(field.getAnnotation(JoinTo.class))
+                    .map(JoinTo::value)
+                    .orElseThrow(() -> new BabyDBException("You must specify the column to join to using the JoinTo annotation, " +
+                            "or add the transient modifier on the field: " + field.getDeclaringClass().getCanonicalName() + "#" + field.getName()));
+            CoreRepo<?> childRepo = BabyRepo.forType(field.getType());
+            //like the batched loader, the JoinTo value can be a field name or a column name
+            String refColumn = childRepo.fieldNameToColName.get(childRepo.resolveField(ref).getName());
+            String alias = "j" + (i + 1);
+            String prefix = alias + "_";
+            prefixes.put(field, prefix);
+            for (Field childField : childRepo.getFields()) {
+                String column = childRepo.fieldNameToColName.get(childField.getName());
+                select.append(",").append(alias).append(".").append(column).append(" as ").append(prefix).append(column);
+            }
+            joins.append(" left join ").append(childRepo.getTableFullName()).append(" ").append(alias)
+                    .append(" on b0.").append(fieldNameToColName.get(field.getName()))
+                    .append(" = ").append(alias).append(".").append(refColumn);
+        }
+        select.append(" from (").append(getBaseSql());
+        return new SelectPlan(select.toString(), joins.toString(), getEntityMapper().joined(prefixes), true);
+    }
 }
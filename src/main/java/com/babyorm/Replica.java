@@ -0,0 +1,251 @@
+package com.babyorm;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A whole table in memory, with a hash index on each of the chosen columns, for
+ * {@link CoreRepo#replicate(Duration, String...)}.
+ * <p>
+ * The records and their indexes are a snapshot that never changes once it's built. A refresh builds a new one off to
+ * the side and swaps it in, so reads never wait on anything, they look in whichever snapshot is current. After a
+ * write only the keys that were written are read again, anything that could have touched any row, and the timer, read
+ * the whole table.
+ * <p>
+ * While a refresh is owed, because it hasn't finished or because it failed, lookups come back null and the repo goes
+ * to the database instead. Records come out as copies, see {@link RecordCopier}.
+ *
+ * @param <T> The type of entity
+ */
+final class Replica<T> {
+
+    private static final Logger logger = Logger.getLogger(Replica.class.getCanonicalName());
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "babyorm-replica-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String table;
+    private final RecordCopier<T> copier;
+    private final Function<T, List<Object>> keyOf;
+    private final Map<String, Function<T, Object>> columns;
+    private final Set<String> indexed;
+    private final Supplier<List<T>> readAll;
+    private final Function<List<List<Object>>, List<T>> readKeys;
+    private final ReentrantLock refreshing = new ReentrantLock();
+    private final Set<List<Object>> owed = ConcurrentHashMap.newKeySet();
+    private volatile boolean everythingOwed;
+    private volatile Snapshot snapshot;
+    private volatile ScheduledFuture<?> timer;
+
+    /**
+     * Reads the whole table right away
+     *
+     * @param keyOf    The cache key of a record, see {@link EntityCache#key(List)}
+     * @param columns  How to get the value of each column from a record
+     * @param indexed  The columns to index
+     * @param readAll  Reads the whole table
+     * @param readKeys Reads the records for some keys, null if that can't be done and the whole table has to be read
+     */
+    Replica(String table, RecordCopier<T> copier, Function<T, List<Object>> keyOf, Map<String, Function<T, Object>> columns,
+            Set<String> indexed, Supplier<List<T>> readAll, Function<List<List<Object>>, List<T>> readKeys) {
+        this.table = table;
+        this.copier = copier;
+        this.keyOf = keyOf;
+        this.columns = columns;
+        this.indexed = indexed;
+        this.readAll = readAll;
+        this.readKeys = readKeys;
+        this.snapshot = new Snapshot(readAll.get());
+    }
+
+    /**
+     * Read the whole table again every so often, to pick up writes that didn't go through the repo
+     */
+    void refreshEvery(Duration every) {
+        long nanos = every.toNanos();
+        timer = TIMER.scheduleWithFixedDelay(() -> {
+            try {
+                refresh(true);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Failed to refresh the replica of " + table + ", trying again in " + every, e);
+            }
+        }, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void stop() {
+        ScheduledFuture<?> t = timer;
+        if (t != null) {
+            t.cancel(false);
+        }
+    }
+
+    /**
+     * @return Copies of every record, or null if a refresh is owed
+     */
+    List<T> all() {
+        if (owing()) {
+            return null;
+        }
+        return copies(snapshot.byKey.values());
+    }
+
+    /**
+     * Find the records the same way the where clause for the column values would. Values in a collection are an in
+     * list, and a null value matches nothing, like {@code column = null}.
+     *
+     * @param columnValues The column names and values to look up by
+     * @param any          Whether any column can match, instead of all of them
+     * @return Copies of the matching records, or null if a refresh is owed, or the columns aren't indexed. ANY
+     * lookups need an index on every column, ALL lookups on just one of them.
+     */
+    List<T> find(Map<String, ?> columnValues, boolean any) {
+        if (owing() || columnValues.isEmpty() || !columns.keySet().containsAll(columnValues.keySet())) {
+            return null;
+        }
+        Snapshot s = snapshot;
+        Map<String, Set<Object>> wanted = new LinkedHashMap<>(columnValues.size() * 2);
+        columnValues.forEach((column, value) -> wanted.put(column, lookupValues(value)));
+        List<T> found = new ArrayList<>();
+        if (any) {
+            if (!indexed.containsAll(wanted.keySet())) {
+                return null;
+            }
+            Set<T> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            wanted.forEach((column, values) -> s.lookup(column, values).stream().filter(seen::add).forEach(found::add));
+        } else {
+            String by = wanted.keySet().stream().filter(indexed::contains).findFirst().orElse(null);
+            if (by == null) {
+                return null;
+            }
+            for (T record : s.lookup(by, wanted.get(by))) {
+                if (wanted.entrySet().stream().allMatch(e -> matches(record, e.getKey(), e.getValue()))) {
+                    found.add(record);
+                }
+            }
+        }
+        return copies(found);
+    }
+
+    /**
+     * Read the records for the keys again and swap them in, after they were written. Anything that can't be tied to
+     * its keys reads the whole table.
+     *
+     * @param keys The keys that were written, null if it could have been any of them
+     */
+    void changed(List<List<Object>> keys) {
+        if (keys == null || readKeys == null || keys.contains(null)) {
+            everythingOwed = true;
+        } else {
+            owed.addAll(keys);
+        }
+        refresh(false);
+    }
+
+    /**
+     * Pay off whatever's owed, or read the whole table if it's asked for, and swap in the new snapshot. Only one
+     * refresh runs at a time, a write that comes in during one is picked up by the next.
+     */
+    private void refresh(boolean whole) {
+        refreshing.lock();
+        try {
+            boolean wasOwed = everythingOwed;
+            everythingOwed = false;
+            List<List<Object>> keys = new ArrayList<>(owed);
+            owed.removeAll(keys);
+            try {
+                if (whole || wasOwed) {
+                    snapshot = new Snapshot(readAll.get());
+                } else if (!keys.isEmpty()) {
+                    snapshot = snapshot.with(keys, readKeys.apply(keys));
+                }
+            } catch (RuntimeException e) {
+                owed.addAll(keys);
+                everythingOwed |= wasOwed;
+                throw e;
+            }
+        } finally {
+            refreshing.unlock();
+        }
+    }
+
+    private boolean owing() {
+        return everythingOwed || !owed.isEmpty();
+    }
+
+    private boolean matches(T record, String column, Set<Object> values) {
+        Object value = columns.get(column).apply(record);
+        return value != null && values.contains(EntityCache.keyValue(value));
+    }
+
+    private List<T> copies(Collection<T> records) {
+        List<T> copies = new ArrayList<>(records.size());
+        records.forEach(r -> copies.add(copier.copy(r)));
+        return copies;
+    }
+
+    /**
+     * The values a where clause value matches, a collection is an in list
+     */
+    private static Set<Object> lookupValues(Object value) {
+        Collection<?> values = value instanceof Collection ? (Collection<?>) value : Collections.singletonList(value);
+        Set<Object> lookup = new LinkedHashSet<>(values.size() * 2);
+        for (Object v : values) {
+            if (v != null) {
+                lookup.add(EntityCache.keyValue(v));
+            }
+        }
+        return lookup;
+    }
+
+    private final class Snapshot {
+        private final Map<List<Object>, T> byKey;
+        private final Map<String, Map<Object, List<T>>> indexes = new HashMap<>();
+
+        Snapshot(Collection<T> records) {
+            byKey = new LinkedHashMap<>(records.size() * 2);
+            indexed.forEach(column -> indexes.put(column, new HashMap<>()));
+            for (T record : records) {
+                byKey.put(keyOf.apply(record), record);
+                indexes.forEach((column, index) -> {
+                    Object value = columns.get(column).apply(record);
+                    if (value != null) {
+                        index.computeIfAbsent(EntityCache.keyValue(value), v -> new ArrayList<>(1)).add(record);
+                    }
+                });
+            }
+        }
+
+        /**
+         * A new snapshot with the records for the keys swapped out for the ones that were just read. Keys that
+         * weren't read were deleted.
+         */
+        Snapshot with(List<List<Object>> keys, List<T> read) {
+            Map<List<Object>, T> records = new LinkedHashMap<>(byKey);
+            keys.forEach(records::remove);
+            read.forEach(r -> records.put(keyOf.apply(r), r));
+            return new Snapshot(records.values());
+        }
+
+        List<T> lookup(String column, Set<Object> values) {
+            Map<Object, List<T>> index = indexes.get(column);
+            if (values.size() == 1) {
+                return index.getOrDefault(values.iterator().next(), Collections.emptyList());
+            }
+            List<T> found = new ArrayList<>();
+            values.forEach(v -> found.addAll(index.getOrDefault(v, Collections.emptyList())));
+            return found;
+        }
+    }
+}
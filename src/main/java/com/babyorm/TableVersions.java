@@ -0,0 +1,56 @@
+package com.babyorm;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A counter for each table that goes up every time something is written to it through a repo, so a cached query
+ * result can tell whether any of the tables it read from have changed since.
+ * <p>
+ * Tables are known by name, upper cased, with and without their schema. Nobody has to register a table up front,
+ * its counter starts at zero the first time anyone asks for it.
+ */
+final class TableVersions {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*(\\.[A-Za-z_][A-Za-z0-9_$]*)?");
+    private static final Map<String, AtomicLong> VERSIONS = new ConcurrentHashMap<>();
+
+    private TableVersions() {
+    }
+
+    /**
+     * The counter for the table, it only ever goes up
+     */
+    static AtomicLong of(String table) {
+        return VERSIONS.computeIfAbsent(table.toUpperCase(), t -> new AtomicLong());
+    }
+
+    /**
+     * Bump the counters for the tables, call this once the writes to them can be seen by everyone else
+     */
+    static void changed(Collection<String> tables) {
+        for (String table : tables) {
+            of(table).incrementAndGet();
+            int dot = table.lastIndexOf('.');
+            if (dot >= 0) {
+                of(table.substring(dot + 1)).incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Every name in the sql that could be a table. That's way more than the tables, columns and keywords come along
+     * for the ride, but their counters never move so they don't hurt anything, and no table gets missed.
+     */
+    static Set<String> namesIn(String sql) {
+        Set<String> names = new HashSet<>();
+        Matcher m = IDENTIFIER.matcher(sql);
+        while (m.find()) {
+            names.add(m.group().toUpperCase());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,31 @@
+package com.babyorm.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Keep records of this entity around by primary key, so getting them by key, or loading them as someone's child,
+ * doesn't have to go to the database every time. Meant for reference data that's read constantly and hardly ever
+ * changes. The same as calling {@code setCache} on the repo.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Cached {
+    /**
+     * The most records to keep, the least recently used ones are dropped to make room
+     */
+    int maxSize() default 1000;
+
+    /**
+     * How many seconds a record is good for after it's read, 0 keeps it until it's pushed out or changed
+     */
+    long ttlSeconds() default 0;
+
+    /**
+     * Keep the records as bytes outside of the heap in this much memory instead, the same as calling
+     * {@code setOffHeapCache} on the repo. The size and ttl don't apply then.
+     */
+    long offHeapBytes() default 0;
+}
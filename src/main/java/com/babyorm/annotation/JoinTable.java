@@ -15,7 +15,6 @@ import java.lang.annotation.Target;
  *  )
  *
  *  table foo_bar {
- *      id int,
  *      foo_id int,
  *      bar_pk int
  *  }
@@ -24,7 +23,7 @@ import java.lang.annotation.Target;
  *      int id;
  *      String name;
  *      @JoinTable(tableName="foo_bar",
- *                 thisColumn"foo_id",
+ *                 thisColumn="foo_id",
  *                 propColumn="bar_pk")
  *      Bar bar;
  *  )
@@ -37,17 +36,23 @@ import java.lang.annotation.Target;
  *      List<Foo> foo;
  *  )
  *
+ * The field can be a single entity, or a List, Set, or Collection of them. The props for every record in a result are
+ * loaded together. Saving a record adds and removes join table rows to match the field, unless it's null, the props
+ * themselves have to be saved on their own first. Deleting records removes their join table rows too, whichever way
+ * they're deleted.
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.FIELD)
 public @interface JoinTable {
     String tableName();
     /**
-     * The column name on this entity to join with. The join table must have the same exact column name.
+     * The join table column that points at this entity. It joins to the column on this entity with the same exact
+     * name, or to the primary key if there isn't one.
      */
     String thisColumn();
     /**
-     *  The column name on the prop entity to join with. The join table must have the same exact column name.
+     * The join table column that points at the prop entity. It joins to the column on the prop entity with the same
+     * exact name, or to the primary key if there isn't one.
      */
     String propColumn();
 }
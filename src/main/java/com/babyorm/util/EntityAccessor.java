@@ -0,0 +1,132 @@
+package com.babyorm.util;
+
+import com.babyorm.BabyDBException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Creates instances of an entity type and gets and sets its fields, all without reflecting on every call.
+ * There is one of these per entity type, get it with {@link #forType(Class)}.
+ * <p>
+ * If the BabyORM annotation processor generated a {@link GeneratedAccessor} for the type, that is used for everything
+ * it can reach, and method handles are only used for whatever is left over.
+ *
+ * @param <T> The entity type
+ */
+public class EntityAccessor<T> {
+
+    private static final ConcurrentHashMap<Class<?>, EntityAccessor<?>> ACCESSORS = new ConcurrentHashMap<>();
+
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final GeneratedAccessor<T> generated;
+    private final Map<String, FieldAccessor> fieldAccessors = new ConcurrentHashMap<>();
+
+    private EntityAccessor(Class<T> type) {
+        this.type = type;
+        this.generated = findGenerated(type);
+        this.constructor = generated == null ? findConstructor(type) : null;
+    }
+
+    /**
+     * Get the accessor for the given type, it's only built the first time it's asked for
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> EntityAccessor<E> forType(Class<E> type) {
+        return (EntityAccessor<E>) ACCESSORS.computeIfAbsent(type, (Function<Class<?>, EntityAccessor<?>>) EntityAccessor::new);
+    }
+
+    /**
+     * The generated accessor lives next to the entity and is named after it, see {@link GeneratedAccessor#SUFFIX}
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> GeneratedAccessor<E> findGenerated(Class<E> type) {
+        String name = type.getName();
+        int lastDot = name.lastIndexOf('.');
+        String generatedName = name.substring(0, lastDot + 1) + name.substring(lastDot + 1).replace('$', '_') + GeneratedAccessor.SUFFIX;
+        try {
+            Class<?> generatedType = Class.forName(generatedName, true, type.getClassLoader());
+            if (!GeneratedAccessor.class.isAssignableFrom(generatedType)) {
+                return null;
+            }
+            return (GeneratedAccessor<E>) generatedType.getConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new BabyDBException("Failed to create the generated accessor " + generatedName, e);
+        }
+    }
+
+    /**
+     * @return Whether the annotation processor generated an accessor for this type
+     */
+    public boolean isGenerated() {
+        return generated != null;
+    }
+
+    private static MethodHandle findConstructor(Class<?> type) {
+        try {
+            return MethodHandles.lookup()
+                    .unreflectConstructor(type.getConstructor())
+                    .asType(MethodType.methodType(Object.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Make a new one using the public no arg constructor
+     */
+    @SuppressWarnings("unchecked")
+    public T newInstance() {
+        if (generated != null) {
+            return generated.newInstance();
+        }
+        if (constructor == null) {
+            throw new BabyDBException("Entity type " + type.getCanonicalName() + " must have a public no arg constructor");
+        }
+        try {
+            return (T) constructor.invokeExact();
+        } catch (Throwable t) {
+            throw new BabyDBException("Failed to create a new instance of " + type.getCanonicalName(), t);
+        }
+    }
+
+    /**
+     * @param field A field declared on this accessor's type
+     * @return The accessor for the field
+     */
+    public FieldAccessor accessor(Field field) {
+        return accessor(field.getName());
+    }
+
+    /**
+     * @param fieldName The name of a field declared on this accessor's type
+     * @return The accessor for the field
+     */
+    public FieldAccessor accessor(String fieldName) {
+        FieldAccessor accessor = fieldAccessors.get(fieldName);
+        return accessor != null ? accessor : fieldAccessors.computeIfAbsent(fieldName, this::buildAccessor);
+    }
+
+    private FieldAccessor buildAccessor(String fieldName) {
+        FieldAccessor generatedAccessor = generated == null ? null : generated.accessor(fieldName);
+        return generatedAccessor != null ? generatedAccessor : EntityReflectingUtils.getField(type, fieldName)
+                .map(MethodHandleFieldAccessor::new)
+                .orElseThrow(() -> new BabyDBException("No field named " + fieldName + " found on " + type.getCanonicalName()));
+    }
+
+    public Object get(Field field, Object target) {
+        return accessor(field.getName()).get(target);
+    }
+
+    public void set(Field field, Object target, Object value) {
+        accessor(field.getName()).set(target, value);
+    }
+}
@@ -0,0 +1,51 @@
+package com.babyorm.util;
+
+import java.lang.reflect.Field;
+
+/**
+ * Gets and sets a single field on an entity. These are built once per field so the get and set paths don't have to
+ * go through {@link Field#get(Object)} and {@link Field#set(Object, Object)} and their access checks every time.
+ */
+public interface FieldAccessor {
+
+    /**
+     * @param target The object to get the field's value from
+     * @return The value of the field on the target, primitives are boxed
+     */
+    Object get(Object target);
+
+    /**
+     * @param target The object to set the field on
+     * @param value The value to set, this must be assignable to the field's type or a {@link ClassCastException} is thrown
+     */
+    void set(Object target, Object value);
+
+    /*
+     * Primitive versions of get and set so numeric columns can go from the ResultSet to the entity and back again
+     * without boxing. The defaults box, implementations override them for fields of the matching primitive type.
+     */
+
+    default int getInt(Object target) {
+        return (Integer) get(target);
+    }
+
+    default void setInt(Object target, int value) {
+        set(target, value);
+    }
+
+    default long getLong(Object target) {
+        return (Long) get(target);
+    }
+
+    default void setLong(Object target, long value) {
+        set(target, value);
+    }
+
+    default double getDouble(Object target) {
+        return (Double) get(target);
+    }
+
+    default void setDouble(Object target, double value) {
+        set(target, value);
+    }
+}
@@ -0,0 +1,27 @@
+package com.babyorm.util;
+
+/**
+ * Implemented by the classes the BabyORM annotation processor generates for each entity. They create the entity and
+ * get and set its fields with plain old java, so none of that needs reflection or method handles at run time.
+ * <p>
+ * The generated class is put in the same package as the entity and named after it with {@link #SUFFIX} on the end,
+ * nested classes have the '$' replaced with '_'. {@link EntityAccessor} picks it up automatically when it's there.
+ *
+ * @param <T> The entity type
+ */
+public interface GeneratedAccessor<T> {
+
+    String SUFFIX = "_BabyAccessor";
+
+    /**
+     * @return A new entity, made with its no arg constructor
+     */
+    T newInstance();
+
+    /**
+     * @param fieldName The name of a field on the entity
+     * @return The accessor for the field, or null if the field can't be reached without reflection (i.e. it's private and
+     * doesn't have a getter and setter)
+     */
+    FieldAccessor accessor(String fieldName);
+}
@@ -0,0 +1,152 @@
+package com.babyorm.util;
+
+import com.babyorm.BabyDBException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * A {@link FieldAccessor} backed by getter and setter method handles that are resolved once.
+ */
+public class MethodHandleFieldAccessor implements FieldAccessor {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Field field;
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+    /**
+     * Exactly typed handles, only set when the field is of the matching primitive type
+     */
+    private final MethodHandle intGetter, intSetter, longGetter, longSetter, doubleGetter, doubleSetter;
+
+    public MethodHandleFieldAccessor(Field field) {
+        this.field = field;
+        try {
+            field.setAccessible(true);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle rawGetter = lookup.unreflectGetter(field);
+            MethodHandle rawSetter = lookup.unreflectSetter(field);
+            this.getter = rawGetter.asType(GETTER_TYPE);
+            this.setter = rawSetter.asType(SETTER_TYPE);
+            this.intGetter = typedGetter(rawGetter, int.class);
+            this.intSetter = typedSetter(rawSetter, int.class);
+            this.longGetter = typedGetter(rawGetter, long.class);
+            this.longSetter = typedSetter(rawSetter, long.class);
+            this.doubleGetter = typedGetter(rawGetter, double.class);
+            this.doubleSetter = typedSetter(rawSetter, double.class);
+        } catch (IllegalAccessException e) {
+            throw new BabyDBException("Failed to access field " + describe(), e);
+        }
+    }
+
+    private MethodHandle typedGetter(MethodHandle rawGetter, Class<?> primitive) {
+        return field.getType() == primitive ? rawGetter.asType(MethodType.methodType(primitive, Object.class)) : null;
+    }
+
+    private MethodHandle typedSetter(MethodHandle rawSetter, Class<?> primitive) {
+        return field.getType() == primitive ? rawSetter.asType(MethodType.methodType(void.class, Object.class, primitive)) : null;
+    }
+
+    @Override
+    public Object get(Object target) {
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (Throwable t) {
+            throw failedToGet(t);
+        }
+    }
+
+    @Override
+    public void set(Object target, Object value) {
+        try {
+            setter.invokeExact(target, value);
+        } catch (Throwable t) {
+            throw failedToSet(t);
+        }
+    }
+
+    @Override
+    public int getInt(Object target) {
+        if (intGetter == null) return FieldAccessor.super.getInt(target);
+        try {
+            return (int) intGetter.invokeExact(target);
+        } catch (Throwable t) {
+            throw failedToGet(t);
+        }
+    }
+
+    @Override
+    public void setInt(Object target, int value) {
+        if (intSetter == null) {
+            FieldAccessor.super.setInt(target, value);
+            return;
+        }
+        try {
+            intSetter.invokeExact(target, value);
+        } catch (Throwable t) {
+            throw failedToSet(t);
+        }
+    }
+
+    @Override
+    public long getLong(Object target) {
+        if (longGetter == null) return FieldAccessor.super.getLong(target);
+        try {
+            return (long) longGetter.invokeExact(target);
+        } catch (Throwable t) {
+            throw failedToGet(t);
+        }
+    }
+
+    @Override
+    public void setLong(Object target, long value) {
+        if (longSetter == null) {
+            FieldAccessor.super.setLong(target, value);
+            return;
+        }
+        try {
+            longSetter.invokeExact(target, value);
+        } catch (Throwable t) {
+            throw failedToSet(t);
+        }
+    }
+
+    @Override
+    public double getDouble(Object target) {
+        if (doubleGetter == null) return FieldAccessor.super.getDouble(target);
+        try {
+            return (double) doubleGetter.invokeExact(target);
+        } catch (Throwable t) {
+            throw failedToGet(t);
+        }
+    }
+
+    @Override
+    public void setDouble(Object target, double value) {
+        if (doubleSetter == null) {
+            FieldAccessor.super.setDouble(target, value);
+            return;
+        }
+        try {
+            doubleSetter.invokeExact(target, value);
+        } catch (Throwable t) {
+            throw failedToSet(t);
+        }
+    }
+
+    private RuntimeException failedToGet(Throwable t) {
+        return t instanceof RuntimeException ? (RuntimeException) t : new BabyDBException("Failed to get value of field " + describe(), t);
+    }
+
+    private RuntimeException failedToSet(Throwable t) {
+        return t instanceof RuntimeException ? (RuntimeException) t : new BabyDBException("Failed to set value of field " + describe(), t);
+    }
+
+    private String describe() {
+        return field.getDeclaringClass().getCanonicalName() + "#" + field.getName();
+    }
+}
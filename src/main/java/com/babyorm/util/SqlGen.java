@@ -1,20 +1,31 @@
 package com.babyorm.util;
 
-import java.util.Collection;
-import java.util.LinkedHashMap;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Writes the sql. Anything built from a list of columns is cached by its shape (the operation, the columns, and the
+ * size of any in lists) so asking for the same thing twice hands back the exact same string without building it again.
+ * The binds always go in the order the columns were given, with in lists flattened in place.
+ */
 public class SqlGen {
 
+    /**
+     * Plenty for any sane set of finders, and stops somebody's 10,000 distinct in list sizes from eating the heap.
+     */
+    private static final int MAX_CACHED_SHAPES = 4096;
+    private static final Map<Shape, String> SHAPES = new ConcurrentHashMap<>();
+
     /**
      * Insert the one thing!
      * @param columnNames The list of columns to include on the insert
      */
     public static String insert(String tableName, List<String> columnNames) {
-        return "insert into " + tableName
+        return cached(new Shape("insert", tableName, columnNames, null), () -> "insert into " + tableName
                 + "(" + String.join(",", columnNames) + ")"
-                + " values (" + columnNames.stream().map(f -> "?").collect(Collectors.joining(",")) + ")";
+                + " values (" + columnNames.stream().map(f -> "?").collect(Collectors.joining(",")) + ")");
     }
 
     /**
@@ -22,8 +33,8 @@ public class SqlGen {
      * @param columnNames The list of columns that will be included in the update
      */
     public static String update(String tableName, List<String> columnNames) {
-        return "update " + tableName
-                + " set " + columnNames.stream().map(n -> n + "=?").collect(Collectors.joining(","));
+        return cached(new Shape("update", tableName, columnNames, null), () -> "update " + tableName
+                + " set " + columnNames.stream().map(n -> n + "=?").collect(Collectors.joining(",")));
     }
 
     /**
@@ -33,6 +44,29 @@ public class SqlGen {
         return "delete from " + tableName;
     }
 
+    /**
+     * Select some of the things!
+     * @param columnNames The columns to select
+     */
+    public static String select(String tableName, List<String> columnNames) {
+        return cached(new Shape("select", tableName, columnNames, null),
+                () -> "select " + String.join(",", columnNames) + " from " + tableName);
+    }
+
+    /**
+     * Count all the things!
+     */
+    public static String count(String tableName) {
+        return "select count(*) from " + tableName;
+    }
+
+    /**
+     * Is there anything?
+     */
+    public static String exists(String tableName) {
+        return "select 1 from " + tableName;
+    }
+
     /**
      * Select all the things!
      */
@@ -40,6 +74,71 @@ public class SqlGen {
         return "select * from " + tableName;
     }
 
+    /**
+     * Build a where statement that picks up right after a row, for paging through rows in order without an offset.
+     * <p>
+     * With row values it's {@code (a,b) > (?,?)}, and the binds are the values of the row once. Without them it's
+     * spelled out as {@code a>? OR (a=? AND b>?)}, and the binds are the first value, then the first two values, and so
+     * on. Row values only work when every column goes the same direction.
+     *
+     * @param columnNames The columns the rows are ordered by
+     * @param descending  Whether each column is ordered descending
+     * @param rowValues   Whether the database can compare row values
+     */
+    public static String seek(List<String> columnNames, boolean[] descending, boolean rowValues) {
+        int[] directions = new int[descending.length + 1];
+        for (int i = 0; i < descending.length; i++) {
+            directions[i] = descending[i] ? 1 : 0;
+        }
+        directions[descending.length] = rowValues ? 1 : 0;
+        return cached(new Shape("seek", null, columnNames, directions), () -> {
+            if (rowValues && canUseRowValues(descending)) {
+                return " where (" + String.join(",", columnNames) + ")" + (descending[0] ? "<" : ">")
+                        + " (" + columnNames.stream().map(c -> "?").collect(Collectors.joining(",")) + ") ";
+            }
+            StringBuilder sb = new StringBuilder(" where ");
+            for (int i = 0; i < columnNames.size(); i++) {
+                sb.append(i == 0 ? "(" : " OR (");
+                for (int j = 0; j < i; j++) {
+                    sb.append(columnNames.get(j)).append("=? AND ");
+                }
+                sb.append(columnNames.get(i)).append(descending[i] ? "<?" : ">?").append(")");
+            }
+            return sb.append(" ").toString();
+        });
+    }
+
+    /**
+     * Whether {@link #seek(List, boolean[], boolean)} can use row values for these directions
+     */
+    public static boolean canUseRowValues(boolean[] descending) {
+        for (boolean d : descending) {
+            if (d != descending[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Order the things!
+     * @param columnNames The columns to order by
+     * @param descending  Whether each column is ordered descending
+     */
+    public static String orderBy(List<String> columnNames, boolean[] descending) {
+        int[] directions = new int[descending.length];
+        for (int i = 0; i < descending.length; i++) {
+            directions[i] = descending[i] ? 1 : 0;
+        }
+        return cached(new Shape("orderBy", null, columnNames, directions), () -> {
+            StringBuilder sb = new StringBuilder(" order by ");
+            for (int i = 0; i < columnNames.size(); i++) {
+                sb.append(i == 0 ? "" : ",").append(columnNames.get(i)).append(descending[i] ? " desc" : " asc");
+            }
+            return sb.toString();
+        });
+    }
+
     /**
      * Build a where statement for a query, ANDing all the fields together
      * @param columnValueMap A map of column names with their values. The values are used to determine whether we should
@@ -61,6 +160,16 @@ public class SqlGen {
     }
 
     private static String where(LinkedHashMap<String, ?> columnValueMap, String operator){
+        int[] inListSizes = new int[columnValueMap.size()];
+        int i = 0;
+        for (Object o : columnValueMap.values()) {
+            inListSizes[i++] = o instanceof Collection ? ((Collection<?>) o).size() : -1;
+        }
+        return cached(new Shape(operator, null, columnValueMap.keySet(), inListSizes),
+                () -> buildWhere(columnValueMap, operator));
+    }
+
+    private static String buildWhere(LinkedHashMap<String, ?> columnValueMap, String operator){
         StringBuilder sb = new StringBuilder(" where ");
         columnValueMap.forEach((s,o)->{
             if (o instanceof Collection) {
@@ -75,4 +184,53 @@ public class SqlGen {
         sb.delete(sb.length()-operator.length(), sb.length()-1);
         return sb.toString();
     }
+
+    private static String cached(Shape shape, Supplier<String> sql) {
+        String cached = SHAPES.get(shape);
+        if (cached == null) {
+            cached = sql.get();
+            if (SHAPES.size() < MAX_CACHED_SHAPES) {
+                SHAPES.putIfAbsent(shape, cached);
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * What makes two pieces of sql the same. The in list sizes are -1 for plain old equals.
+     */
+    private static class Shape {
+        private final String operation;
+        private final String tableName;
+        private final List<String> columnNames;
+        private final int[] inListSizes;
+        private final int hash;
+
+        Shape(String operation, String tableName, Collection<String> columnNames, int[] inListSizes) {
+            this.operation = operation;
+            this.tableName = tableName;
+            //copied so nobody can change the key out from under the map
+            this.columnNames = new ArrayList<>(columnNames);
+            this.inListSizes = inListSizes;
+            this.hash = 31 * (31 * (31 * operation.hashCode() + Objects.hashCode(tableName)) + this.columnNames.hashCode())
+                    + Arrays.hashCode(inListSizes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Shape)) return false;
+            Shape that = (Shape) o;
+            return hash == that.hash
+                    && operation.equals(that.operation)
+                    && Objects.equals(tableName, that.tableName)
+                    && columnNames.equals(that.columnNames)
+                    && Arrays.equals(inListSizes, that.inListSizes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
 }
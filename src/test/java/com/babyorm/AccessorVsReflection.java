@@ -0,0 +1,75 @@
+package com.babyorm;
+
+import com.babyorm.db.Baby;
+import com.babyorm.util.EntityAccessor;
+import com.babyorm.util.EntityReflectingUtils;
+import com.babyorm.util.FieldAccessor;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static com.babyorm.StreamVsLoop.*;
+
+/**
+ * Compares getting and setting entity fields through {@link EntityReflectingUtils#getSafe(Field, Object)} and
+ * {@link EntityReflectingUtils#setSafe(Field, Object, Object)} against the {@link FieldAccessor}s the repos use.
+ * Each size is run a few times before it's measured so the JIT has a chance to get its act together.
+ */
+public class AccessorVsReflection {
+
+    private static final int WARMUP_RUNS = 5;
+
+    public static void main(String[] args) throws NoSuchFieldException {
+        Field name = Baby.class.getDeclaredField("name");
+        Field toes = Baby.class.getDeclaredField("numberOfToes");
+        FieldAccessor nameAccessor = EntityAccessor.forType(Baby.class).accessor(name);
+        FieldAccessor toesAccessor = EntityAccessor.forType(Baby.class).accessor(toes);
+        Baby baby = new Baby();
+
+        int iterations = 20;
+        Long[] reflectionResult = new Long[iterations];
+        Long[] accessorResult = new Long[iterations];
+        for (int i = 1; i <= iterations; i++) {
+            int n = (int) Math.pow(2, i);
+            for (int w = 0; w < WARMUP_RUNS; w++) {
+                copyWithReflection(n, baby, name, toes);
+                copyWithAccessors(n, baby, nameAccessor, toesAccessor);
+            }
+            reflectionResult[i - 1] = copyWithReflection(n, baby, name, toes);
+            accessorResult[i - 1] = copyWithAccessors(n, baby, nameAccessor, toesAccessor);
+        }
+
+        Long[] difference = IntStream.range(0, iterations).mapToLong(i -> reflectionResult[i] - accessorResult[i]).boxed().toArray(Long[]::new);
+
+        System.out.println(
+                jsonObject(
+                        jsonProp("reflection", jsonArray(toMs(reflectionResult))),
+                        jsonProp("accessor", jsonArray(toMs(accessorResult))),
+                        jsonProp("diff", jsonArray(toMs(difference)))
+                )
+        );
+    }
+
+    private static String[] toMs(Long[] results) {
+        return Arrays.stream(results).map(nanos -> String.format("%.3fms", nanos / 1000000D)).toArray(String[]::new);
+    }
+
+    static long copyWithReflection(int n, Baby baby, Field name, Field toes) {
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            EntityReflectingUtils.setSafe(toes, baby, (Integer) EntityReflectingUtils.getSafe(toes, baby) + 1);
+            EntityReflectingUtils.setSafe(name, baby, EntityReflectingUtils.getSafe(name, baby));
+        }
+        return System.nanoTime() - start;
+    }
+
+    static long copyWithAccessors(int n, Baby baby, FieldAccessor name, FieldAccessor toes) {
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            toes.set(baby, (Integer) toes.get(baby) + 1);
+            name.set(baby, name.get(baby));
+        }
+        return System.nanoTime() - start;
+    }
+}
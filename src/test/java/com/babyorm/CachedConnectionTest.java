@@ -0,0 +1,80 @@
+package com.babyorm;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachedConnectionTest {
+
+    private final Map<String, List<Boolean>> prepared = new LinkedHashMap<>();
+    private final Set<PreparedStatement> closed = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean connectionClosed;
+
+    @Test
+    public void evictedStatementsAreClosed() throws Exception {
+        CachedConnection conn = new CachedConnection(connection(), 2);
+        PreparedStatement first = conn.prepare("select 1", false);
+        PreparedStatement second = conn.prepare("select 2", false);
+        assertSame(first, conn.prepare("select 1", false), "the statement is reused");
+        assertNotSame(first, conn.prepare("select 1", true), "asking for generated keys is a different statement");
+
+        assertTrue(closed.contains(second), "the least recently used statement is closed when it's pushed out");
+        assertFalse(closed.contains(first));
+        assertNotSame(second, conn.prepare("select 2", false), "an evicted statement is prepared again");
+        assertEquals(Arrays.asList(false, true), prepared.get("select 1"), "plain selects don't ask for generated keys");
+        conn.close();
+    }
+
+    @Test
+    public void closingClosesEveryStatement() throws Exception {
+        CachedConnection conn = new CachedConnection(connection(), 2);
+        PreparedStatement first = conn.prepare("select 1", false);
+        PreparedStatement second = conn.prepare("select 2", false);
+        assertTrue(closed.isEmpty());
+        conn.close();
+        assertTrue(closed.contains(first) && closed.contains(second));
+        assertTrue(connectionClosed, "the connection is handed back after its statements are closed");
+    }
+
+    private Connection connection() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    prepared.computeIfAbsent((String) args[0], sql -> new ArrayList<>()).add(args.length > 1);
+                    return statement();
+                case "close":
+                    connectionClosed = true;
+                    return null;
+                case "getAutoCommit":
+                    return true;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private PreparedStatement statement() {
+        PreparedStatement[] self = new PreparedStatement[1];
+        self[0] = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    closed.add(self[0]);
+                    return null;
+                case "isClosed":
+                    return closed.contains(self[0]);
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return null;
+            }
+        });
+        return self[0];
+    }
+}
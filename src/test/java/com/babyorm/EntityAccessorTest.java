@@ -0,0 +1,52 @@
+package com.babyorm;
+
+import com.babyorm.db.Baby;
+import com.babyorm.db.EntityWithMultiValuedKey;
+import com.babyorm.util.EntityAccessor;
+import com.babyorm.util.FieldAccessor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityAccessorTest {
+
+    @Test
+    void generatedAccessor() {
+        EntityAccessor<Baby> accessor = EntityAccessor.forType(Baby.class);
+        assertTrue(accessor.isGenerated());
+
+        Baby baby = accessor.newInstance();
+        accessor.accessor("name").set(baby, "Charlie");
+        accessor.accessor("numberOfToes").setInt(baby, 9);
+        assertEquals("Charlie", baby.getName());
+        assertEquals(9, baby.getNumberOfToes());
+        assertEquals("Charlie", accessor.accessor("name").get(baby));
+        assertEquals(9, accessor.accessor("numberOfToes").getInt(baby));
+        assertEquals(9, accessor.accessor("numberOfToes").get(baby));
+    }
+
+    @Test
+    void privateFieldsWithoutGetters_fallBackToMethodHandles() {
+        EntityAccessor<EntityWithMultiValuedKey> accessor = EntityAccessor.forType(EntityWithMultiValuedKey.class);
+        EntityWithMultiValuedKey entity = accessor.newInstance();
+        FieldAccessor taco = accessor.accessor("taco");
+        FieldAccessor banana = accessor.accessor("banana");
+
+        taco.setLong(entity, 42L);
+        banana.set(entity, 7);
+        assertEquals(42L, taco.getLong(entity));
+        assertEquals(42L, taco.get(entity));
+        assertEquals(7, banana.getInt(entity));
+    }
+
+    @Test
+    void wrongType() {
+        FieldAccessor name = EntityAccessor.forType(Baby.class).accessor("name");
+        assertThrows(ClassCastException.class, () -> name.set(new Baby(), 9));
+    }
+
+    @Test
+    void noSuchField() {
+        assertThrows(BabyDBException.class, () -> EntityAccessor.forType(Baby.class).accessor("nope"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.babyorm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InListsTest {
+
+    @Test
+    public void paddedToPowerOfTwo() {
+        assertEquals(1, InLists.paddedSize(1, 100));
+        assertEquals(2, InLists.paddedSize(2, 100));
+        assertEquals(8, InLists.paddedSize(5, 100));
+        assertEquals(64, InLists.paddedSize(64, 100));
+        assertEquals(100, InLists.paddedSize(65, 100));
+        assertEquals(150, InLists.paddedSize(150, 100));
+
+        List<LinkedHashMap<String, Object>> split = InLists.split(Collections.singletonMap("PK", Arrays.asList(1, 2, 2, 3, 4, 5)), false, 100, 100);
+        assertEquals(1, split.size());
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 5, 5, 5), split.get(0).get("PK"));
+    }
+
+    @Test
+    public void chunked() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("NAME", "Charlie");
+        values.put("PK", Arrays.asList(1, 2, 3, 4, 5, 6, 7));
+        List<LinkedHashMap<String, Object>> split = InLists.split(values, false, 10, 4);
+        assertEquals(Arrays.asList(1, 2, 3), split.get(0).get("PK"));
+        assertEquals(Arrays.asList(4, 5, 6), split.get(1).get("PK"));
+        assertEquals(Arrays.asList(7), split.get(2).get("PK"));
+        assertTrue(split.stream().allMatch(m -> "Charlie".equals(m.get("NAME"))));
+    }
+
+    @Test
+    public void twoOversizedLists() {
+        List<Integer> pks = new ArrayList<>(), parents = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) {
+            pks.add(i);
+            parents.add(-i);
+        }
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("NAME", "Charlie");
+        values.put("PK", pks);
+        values.put("PARENT", parents);
+
+        List<LinkedHashMap<String, Object>> any = InLists.split(values, true, 1000, 999);
+        assertEquals(81, any.size(), "499 of each list per query");
+        assertTrue(any.stream().allMatch(m -> binds(m) <= 999), "every query fits the driver's limit");
+        assertEquals(new HashSet<>(pks), collect(any, "PK"));
+        assertEquals(new HashSet<>(parents), collect(any, "PARENT"));
+        assertTrue(any.stream().allMatch(m -> "Charlie".equals(m.get("NAME"))));
+
+        values.put("PK", pks.subList(0, 1000));
+        values.put("PARENT", parents.subList(0, 1000));
+        List<LinkedHashMap<String, Object>> all = InLists.split(values, false, 1000, 999);
+        assertEquals(9, all.size(), "every piece of one list meets every piece of the other");
+        assertTrue(all.stream().allMatch(m -> binds(m) <= 999));
+        assertEquals(new HashSet<>(pks.subList(0, 1000)), collect(all, "PK"));
+        assertEquals(new HashSet<>(parents.subList(0, 1000)), collect(all, "PARENT"));
+    }
+
+    @Test
+    public void tooManyBindsOutsideOfLists() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("NAME", "Charlie");
+        values.put("HAIR_COLOR", "brown");
+        values.put("PK", Arrays.asList(1, 2, 3));
+        assertThrows(BabyDBException.class, () -> InLists.split(values, false, 10, 2));
+    }
+
+    private static int binds(Map<String, Object> chunk) {
+        return chunk.values().stream().mapToInt(v -> v instanceof Collection ? ((Collection<?>) v).size() : 1).sum();
+    }
+
+    private static Set<Object> collect(List<LinkedHashMap<String, Object>> chunks, String column) {
+        Set<Object> values = new HashSet<>();
+        chunks.forEach(m -> values.addAll((Collection<?>) m.getOrDefault(column, Collections.emptyList())));
+        return values;
+    }
+
+    @Test
+    public void emptyCollections() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("NAME", "Charlie");
+        values.put("PK", Collections.emptyList());
+        assertTrue(InLists.split(values, false, 10, 10).isEmpty());
+        assertEquals(Collections.singletonMap("NAME", "Charlie"), InLists.split(values, true, 10, 10).get(0));
+        assertTrue(InLists.split(Collections.singletonMap("PK", Collections.emptyList()), true, 10, 10).isEmpty());
+    }
+}
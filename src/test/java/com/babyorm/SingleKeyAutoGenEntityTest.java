@@ -1,15 +1,33 @@
 package com.babyorm;
 
 import com.babyorm.db.Baby;
+import com.babyorm.db.BabyTwin;
+import com.babyorm.db.EntityWithAllSupportedTypes;
+import com.babyorm.db.GuardedBaby;
+import com.babyorm.db.LazyBaby;
+import com.babyorm.db.MysqlTestDB;
 import com.babyorm.db.Parent;
 import com.babyorm.db.TestDB;
+import com.babyorm.db.UncountedBaby;
 import org.hibernate.Session;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.util.*;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -107,6 +125,604 @@ class SingleKeyAutoGenEntityTest extends BaseDBTest{
         assertEquals(savedParent.getPk(), got.getParent().getPk());
     }
 
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void getManyWithLazyParents(TestDB testDB) {
+        BabyRepo<Parent> parentRepo = BabyRepo.forType(Parent.class);
+        BabyRepo<LazyBaby> lazyRepo = BabyRepo.forType(LazyBaby.class);
+        lazyRepo.setConnectionSupplier(testDB::connectionSupplier);
+        List<Parent> parents = IntStream.range(0, 2).mapToObj(i -> {
+            Parent parent = new Parent();
+            parent.setName("lazy parent " + i);
+            return parentRepo.save(parent);
+        }).collect(Collectors.toList());
+        String hairColor = UUID.randomUUID().toString();
+        for (int i = 0; i < 5; i++) {
+            LazyBaby baby = new LazyBaby();
+            baby.setName("lazy " + i);
+            baby.setHairColor(hairColor);
+            baby.setParent(Lazy.of(i == 4 ? null : parents.get(i % 2)));
+            lazyRepo.save(baby);
+        }
+
+        int[] parentQueries = new int[1];
+        parentRepo.setConnectionSupplier(() -> {
+            parentQueries[0]++;
+            return testDB.connectionSupplier();
+        });
+        try {
+            List<LazyBaby> got = lazyRepo.getManyBy("hairColor", hairColor);
+            assertEquals(5, got.size());
+            assertEquals(0, parentQueries[0], "nobody asked for a parent yet");
+            assertTrue(got.stream().allMatch(b -> b.getName().equals("lazy 4") == b.getParent().isLoaded()));
+            for (LazyBaby baby : got) {
+                int i = Integer.parseInt(baby.getName().substring("lazy ".length()));
+                if (i == 4) {
+                    assertNull(baby.getParent().get());
+                } else {
+                    assertEquals(parents.get(i % 2).getPk(), baby.getParent().get().getPk());
+                }
+            }
+            assertEquals(1, parentQueries[0], "all of the parents were loaded by the first one asked for");
+
+            LazyBaby first = got.stream().filter(b -> b.getName().equals("lazy 0")).findFirst().get();
+            first.setName("lazy 0 again");
+            LazyBaby updated = lazyRepo.save(first);
+            assertEquals(parents.get(0).getPk(), updated.getParent().get().getPk());
+        } finally {
+            parentRepo.setConnectionSupplier(testDB::connectionSupplier);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void joinTable(TestDB testDB) throws SQLException {
+        BabyRepo<Parent> parentRepo = BabyRepo.forType(Parent.class);
+        BabyRepo<GuardedBaby> guardedRepo = BabyRepo.forType(GuardedBaby.class);
+        guardedRepo.setConnectionSupplier(testDB::connectionSupplier);
+        List<Parent> guardians = IntStream.range(0, 3).mapToObj(i -> {
+            Parent parent = new Parent();
+            parent.setName("guardian " + i);
+            return parentRepo.save(parent);
+        }).collect(Collectors.toList());
+        String hairColor = UUID.randomUUID().toString();
+        List<GuardedBaby> babies = IntStream.range(0, 4).mapToObj(i -> {
+            GuardedBaby baby = new GuardedBaby();
+            baby.setName("guarded " + i);
+            baby.setHairColor(hairColor);
+            baby.setGuardians(new ArrayList<>(guardians.subList(0, i % 3 + 1)));
+            return baby;
+        }).collect(Collectors.toList());
+        babies.set(3, guardedRepo.save(babies.get(3)));
+        guardedRepo.insertAll(babies.subList(0, 3));
+
+        parentRepo.setConnectionSupplier(() -> {throw new IllegalStateException("the guardians should be read on the babies' connection");});
+        List<String> prepared = new ArrayList<>();
+        guardedRepo.setConnectionSupplier(recordingStatements(testDB, prepared));
+        try {
+            Map<String, GuardedBaby> got = guardedRepo.getManyBy("hairColor", hairColor).stream()
+                    .collect(Collectors.toMap(GuardedBaby::getName, b -> b));
+            assertEquals(3, prepared.size(), "the babies, the join table, then all of the guardians with one query: " + prepared);
+            for (int i = 0; i < 4; i++) {
+                assertEquals(guardians.subList(0, i % 3 + 1).stream().map(Parent::getPk).collect(Collectors.toSet()),
+                        got.get("guarded " + i).getGuardians().stream().map(Parent::getPk).collect(Collectors.toSet()));
+            }
+        } finally {
+            parentRepo.setConnectionSupplier(testDB::connectionSupplier);
+            guardedRepo.setConnectionSupplier(testDB::connectionSupplier);
+        }
+
+        GuardedBaby changed = guardedRepo.getOneBy("name", "guarded 2");
+        changed.setGuardians(Collections.singletonList(guardians.get(2)));
+        GuardedBaby saved = guardedRepo.save(changed);
+        assertEquals(Collections.singletonList(guardians.get(2).getPk()), saved.getGuardians().stream().map(Parent::getPk).collect(Collectors.toList()));
+
+        List<Long> keys = babies.stream().map(GuardedBaby::getPk).collect(Collectors.toList());
+        assertEquals(1 + 2 + 1 + 1, countLinks(testDB, keys));
+        assertTrue(guardedRepo.delete(saved));
+        assertEquals(1 + 2 + 1, countLinks(testDB, keys), "deleting one record removes its links");
+        assertEquals(1, guardedRepo.deleteBy("name", "guarded 1"));
+        assertEquals(1 + 1, countLinks(testDB, keys), "deleting by a column removes the links of what matched");
+        guardedRepo.deleteAll(babies);
+        assertEquals(0, countLinks(testDB, keys));
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void cachedParents(TestDB testDB) throws InterruptedException {
+        BabyRepo<Parent> parentRepo = BabyRepo.forType(Parent.class);
+        parentRepo.setCache(2, null);
+        try {
+            Parent parent = new Parent();
+            parent.setName("cached");
+            parent = parentRepo.save(parent);
+            String pk = parent.getPk();
+
+            Parent first = parentRepo.get(() -> pk);
+            parentRepo.setConnectionSupplier(() -> {throw new IllegalStateException("the parent should come from the cache");});
+            Parent second;
+            try {
+                second = parentRepo.get(() -> pk);
+            } finally {
+                parentRepo.setConnectionSupplier(testDB::connectionSupplier);
+            }
+            assertEquals("cached", second.getName());
+            assertNotSame(first, second, "everyone gets their own copy");
+            second.setName("changed, not saved");
+            assertEquals("cached", parentRepo.get(() -> pk).getName());
+
+            long misses = parentRepo.getCacheStats().getMisses();
+            assertEquals("cached", parentRepo.getOneBy("name", "cached").getName());
+            assertEquals(misses, parentRepo.getCacheStats().getMisses(), "looking up by name doesn't touch the cache");
+
+            second.setName("changed");
+            parentRepo.save(second);
+            assertEquals("changed", parentRepo.get(() -> pk).getName());
+            parentRepo.updateMany(Collections.singletonMap("name", "changed again"), Collections.singletonMap("pk", pk));
+            assertEquals("changed again", parentRepo.get(() -> pk).getName());
+
+            Baby baby = new Baby();
+            baby.setName(UUID.randomUUID().toString());
+            baby.setParent(second);
+            repo.save(baby);
+            List<String> prepared = new ArrayList<>();
+            repo.setConnectionSupplier(recordingStatements(testDB, prepared));
+            try {
+                assertEquals("changed again", repo.getOneBy("name", baby.getName()).getParent().getName());
+                assertEquals(1, prepared.size(), "the parent comes from the cache: " + prepared);
+            } finally {
+                repo.setConnectionSupplier(testDB::connectionSupplier);
+                repo.deleteBy("name", baby.getName());
+            }
+
+            parentRepo.delete(second);
+            assertNull(parentRepo.get(() -> pk));
+
+            CacheStats before = parentRepo.getCacheStats();
+            for (int i = 0; i < 3; i++) {
+                Parent another = new Parent();
+                another.setName("crowding " + i);
+                parentRepo.save(another);
+            }
+            CacheStats after = parentRepo.getCacheStats();
+            assertTrue(after.getSize() <= 2, after.toString());
+            assertTrue(after.getEvictions() > before.getEvictions(), after.toString());
+            assertTrue(after.getHits() > 0 && after.getMisses() > 0, after.toString());
+
+            parentRepo.setCache(10, Duration.ofMillis(1));
+            parentRepo.get(() -> pk);
+            Parent fresh = new Parent();
+            fresh.setName("expiring");
+            String freshPk = parentRepo.save(fresh).getPk();
+            Thread.sleep(5);
+            parentRepo.get(() -> freshPk);
+            assertEquals(0, parentRepo.getCacheStats().getHits(), "the saved parent expired before it was read");
+        } finally {
+            parentRepo.setCache(0, null);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void queryCache(TestDB testDB) {
+        BabyRepo<Parent> parentRepo = BabyRepo.forType(Parent.class);
+        BabyRepo<LazyBaby> lazyRepo = BabyRepo.forType(LazyBaby.class);
+        lazyRepo.setConnectionSupplier(testDB::connectionSupplier);
+        Parent parent = new Parent();
+        parent.setName("query cached");
+        Parent savedParent = parentRepo.save(parent);
+        String hairColor = UUID.randomUUID().toString();
+        for (int i = 0; i < 3; i++) {
+            Baby baby = new Baby();
+            baby.setName("query cached " + i);
+            baby.setHairColor(hairColor);
+            baby.setNumberOfToes(i);
+            baby.setParent(savedParent);
+            repo.save(baby);
+        }
+
+        repo.setQueryCache(1 << 20);
+        try {
+            assertEquals(3, repo.getManyBy("hairColor", hairColor).size());
+            assertEquals(3, repo.execute("select * from baby where hair_color = ?", hairColor).size());
+            repo.setConnectionSupplier(() -> {throw new IllegalStateException("the babies should come from the cache");});
+            List<Baby> cached;
+            try {
+                cached = repo.getManyBy("hairColor", hairColor);
+                assertEquals(3, repo.execute("select * from baby where hair_color = ?", hairColor).size());
+            } finally {
+                repo.setConnectionSupplier(testDB::connectionSupplier);
+            }
+            assertEquals(3, cached.size());
+            assertEquals(2, repo.getQueryCacheStats().getHits());
+            cached.get(0).setName("changed, not saved");
+            assertTrue(repo.getManyBy("hairColor", hairColor).stream().noneMatch(b -> b.getName().startsWith("changed")),
+                    "everyone gets their own copies");
+
+            savedParent.setName("query cached, renamed");
+            parentRepo.save(savedParent);
+            assertTrue(repo.getManyBy("hairColor", hairColor).stream().allMatch(b -> b.getParent().getName().equals("query cached, renamed")),
+                    "writing to a child's table throws out the result");
+
+            LazyBaby fourth = new LazyBaby();
+            fourth.setName("query cached 3");
+            fourth.setHairColor(hairColor);
+            fourth.setNumberOfToes(3);
+            lazyRepo.save(fourth);
+            assertEquals(4, repo.execute("select * from baby where hair_color = ?", hairColor).size(),
+                    "another repo writing to the same table throws out the result");
+            assertEquals(4, repo.getManyBy("hairColor", hairColor).size());
+
+            repo.setQueryCache(2000);
+            for (int i = 0; i < 4; i++) {
+                repo.getManyByAll(Collections.singletonMap("numberOfToes", i));
+            }
+            CacheStats stats = repo.getQueryCacheStats();
+            assertTrue(stats.getEvictions() > 0, stats.toString());
+        } finally {
+            repo.setQueryCache(0);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void offHeapCache(TestDB testDB) {
+        Parent parent = new Parent();
+        parent.setName("off heap");
+        Parent savedParent = BabyRepo.forType(Parent.class).save(parent);
+        Baby baby = new Baby();
+        baby.setName(UUID.randomUUID().toString());
+        baby.setHairColor("off heap");
+        baby.setNumberOfToes(10);
+        baby.setParent(savedParent);
+        Long pk = repo.save(baby).getPk();
+
+        repo.setOffHeapCache(1 << 20);
+        try {
+            repo.get(() -> pk);
+            List<String> prepared = new ArrayList<>();
+            repo.setConnectionSupplier(recordingStatements(testDB, prepared));
+            Baby cached, byKey;
+            try {
+                cached = repo.get(() -> pk);
+                byKey = repo.getOneBy("pk", pk);
+            } finally {
+                repo.setConnectionSupplier(testDB::connectionSupplier);
+            }
+            assertTrue(prepared.isEmpty(), "the babies should come from the cache: " + prepared);
+            assertNotSame(cached, byKey);
+            assertEquals(baby.getName(), cached.getName());
+            assertEquals("off heap", byKey.getHairColor());
+            assertEquals(10, byKey.getNumberOfToes());
+            assertEquals("off heap", cached.getParent().getName(), "children are loaded on the way out");
+            assertEquals(2, repo.getCacheStats().getHits());
+            assertTrue(repo.getCacheStats().getBytes() > 0);
+
+            cached.setNumberOfToes(11);
+            repo.save(cached);
+            assertEquals(11, repo.get(() -> pk).getNumberOfToes());
+
+            repo.setOffHeapCache(1024);
+            for (int i = 0; i < 20; i++) {
+                repo.get(() -> pk);
+                repo.getOneBy("pk", -1L - i);
+                Baby another = new Baby();
+                another.setName("off heap " + i);
+                another.setHairColor("off heap");
+                another.setNumberOfToes(10);
+                Long anotherPk = repo.save(another).getPk();
+                assertEquals("off heap " + i, repo.get(() -> anotherPk).getName());
+            }
+            CacheStats stats = repo.getCacheStats();
+            assertTrue(stats.getBytes() <= 1024, stats.toString());
+            assertTrue(stats.getEvictions() > 0, stats.toString());
+            assertEquals(11, repo.get(() -> pk).getNumberOfToes());
+        } finally {
+            repo.setOffHeapCache(0);
+            repo.deleteBy("hairColor", "off heap");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void replicated(TestDB testDB) throws SQLException, InterruptedException {
+        BabyRepo<Parent> parentRepo = BabyRepo.replicated(Parent.class, null, "name");
+        ConnectionSupplier noConnections = () -> {throw new IllegalStateException("the parents should come from memory");};
+        try {
+            String first = UUID.randomUUID().toString(), second = UUID.randomUUID().toString();
+            Parent firstParent = new Parent();
+            firstParent.setName(first);
+            String firstPk = parentRepo.save(firstParent).getPk();
+            Parent secondParent = new Parent();
+            secondParent.setName(second);
+            String secondPk = parentRepo.save(secondParent).getPk();
+
+            parentRepo.setConnectionSupplier(noConnections);
+            List<Parent> both;
+            try {
+                assertEquals(firstPk, parentRepo.getOneBy("name", first).getPk(), "saving reads the new parent into the replica");
+                assertEquals(second, parentRepo.get(() -> secondPk).getName());
+                both = parentRepo.getManyBy("name", Arrays.asList(first, second, "nobody"));
+                assertEquals(2, both.size());
+                assertEquals(1, parentRepo.getManyByAll(mapOf("name", first, "pk", firstPk)).size());
+                assertEquals(0, parentRepo.getManyByAll(mapOf("name", first, "pk", secondPk)).size());
+                assertEquals(2, parentRepo.getManyByAny(mapOf("name", first, "pk", secondPk)).size());
+                assertNull(parentRepo.getOneBy("name", null), "null matches nothing, like it does in sql");
+                assertTrue(parentRepo.getAll().stream().anyMatch(p -> p.getPk().equals(secondPk)));
+            } finally {
+                parentRepo.setConnectionSupplier(testDB::connectionSupplier);
+            }
+            both.get(0).setName("changed, not saved");
+            assertNotNull(parentRepo.getOneBy("name", both.get(0).getPk().equals(firstPk) ? first : second), "everyone gets their own copies");
+
+            Baby baby = new Baby();
+            baby.setName(UUID.randomUUID().toString());
+            baby.setParent(parentRepo.get(() -> firstPk));
+            repo.save(baby);
+            List<String> prepared = new ArrayList<>();
+            repo.setConnectionSupplier(recordingStatements(testDB, prepared));
+            parentRepo.setConnectionSupplier(noConnections);
+            try {
+                assertEquals(first, repo.getOneBy("name", baby.getName()).getParent().getName());
+                assertEquals(1, prepared.size(), "the parent comes from memory: " + prepared);
+            } finally {
+                repo.setConnectionSupplier(testDB::connectionSupplier);
+                parentRepo.setConnectionSupplier(testDB::connectionSupplier);
+                repo.deleteBy("name", baby.getName());
+            }
+
+            String renamed = UUID.randomUUID().toString();
+            parentRepo.updateMany(Collections.singletonMap("name", renamed), Collections.singletonMap("pk", firstPk));
+            assertNull(parentRepo.getOneBy("name", first));
+            assertEquals(firstPk, parentRepo.getOneBy("name", renamed).getPk());
+            parentRepo.delete(() -> secondPk);
+            assertNull(parentRepo.getOneBy("name", second));
+            assertNull(parentRepo.get(() -> secondPk));
+
+            String behindItsBack = UUID.randomUUID().toString();
+            renameBehindItsBack(testDB, firstPk, behindItsBack);
+            assertNull(parentRepo.getOneBy("name", behindItsBack), "writes that go around the repo aren't noticed");
+            parentRepo.replicate(Duration.ofMillis(20), "name");
+            assertEquals(firstPk, parentRepo.getOneBy("name", behindItsBack).getPk());
+            renameBehindItsBack(testDB, firstPk, renamed);
+            for (int i = 0; i < 250 && parentRepo.getOneBy("name", renamed) == null; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(firstPk, parentRepo.getOneBy("name", renamed).getPk(), "the timer reads the whole table again");
+        } finally {
+            parentRepo.stopReplicating();
+            parentRepo.setConnectionSupplier(testDB::connectionSupplier);
+        }
+    }
+
+    private static void renameBehindItsBack(TestDB testDB, String parentPk, String name) throws SQLException {
+        try (Connection conn = testDB.connectionSupplier();
+             PreparedStatement st = conn.prepareStatement("update parent set name = ? where pk = ?")) {
+            st.setString(1, name);
+            st.setString(2, parentPk);
+            st.executeUpdate();
+        }
+    }
+
+    private static Map<String, Object> mapOf(String k1, Object v1, String k2, Object v2) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put(k1, v1);
+        map.put(k2, v2);
+        return map;
+    }
+
+    /**
+     * Hands out connections that write down the sql of every statement prepared on them
+     */
+    private static ConnectionSupplier recordingStatements(TestDB testDB, List<String> prepared) {
+        return () -> {
+            Connection conn = testDB.connectionSupplier();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                if (method.getName().equals("prepareStatement")) {
+                    prepared.add((String) args[0]);
+                }
+                try {
+                    return method.invoke(conn, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        };
+    }
+
+    /**
+     * Hands out connections whose statements fail on the given row, counting every row that's executed or batched
+     */
+    private static ConnectionSupplier failingOnRow(TestDB testDB, int failingRow) {
+        int[] rows = {0};
+        return () -> {
+            Connection conn = testDB.connectionSupplier();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                try {
+                    Object result = method.invoke(conn, args);
+                    if (!(result instanceof PreparedStatement)) {
+                        return result;
+                    }
+                    PreparedStatement st = (PreparedStatement) result;
+                    return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, (p, m, a) -> {
+                        if ((m.getName().equals("executeUpdate") || m.getName().equals("addBatch")) && ++rows[0] == failingRow) {
+                            throw new SQLException("row " + failingRow + " didn't make it");
+                        }
+                        try {
+                            return m.invoke(st, a);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        };
+    }
+
+    private static int countLinks(TestDB testDB, List<Long> babies) throws SQLException {
+        try (Connection conn = testDB.connectionSupplier()) {
+            int count = 0;
+            for (Long baby : babies) {
+                PreparedStatement st = conn.prepareStatement("select count(*) from baby_guardian where baby = ?");
+                st.setLong(1, baby);
+                ResultSet rs = st.executeQuery();
+                rs.next();
+                count += rs.getInt(1);
+            }
+            return count;
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void circularJoinTo(TestDB testDB) {
+        BabyRepo<BabyTwin> twinRepo = BabyRepo.forType(BabyTwin.class);
+        twinRepo.setConnectionSupplier(testDB::connectionSupplier);
+        BabyTwin a = new BabyTwin(), b = new BabyTwin();
+        a.setName(UUID.randomUUID().toString());
+        b.setName(UUID.randomUUID().toString());
+        a.setParent(b);
+        b.setParent(a);
+        List<BabyTwin> twins = twinRepo.insertAll(Arrays.asList(a, b));
+        try {
+            BabyTwin got = twinRepo.getOneBy("name", a.getName());
+            assertEquals(b.getName(), got.getParent().getName());
+            assertSame(got, got.getParent().getParent(), "the cycle stops at the baby that was already read");
+
+            List<BabyTwin> both = twinRepo.getManyBy("name", Arrays.asList(a.getName(), b.getName()));
+            assertEquals(2, both.size());
+            assertSame(both.get(1), both.get(0).getParent(), "each baby is only created once");
+            assertSame(both.get(0), both.get(1).getParent());
+        } finally {
+            twinRepo.deleteAll(twins);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void getOneWithParent_joinFetch(TestDB testDB) {
+        BabyRepo<Parent> parentRepo = BabyRepo.forType(Parent.class);
+        Parent parent = new Parent();
+        parent.setName("Joined");
+        Parent savedParent = parentRepo.save(parent);
+        String withParent = UUID.randomUUID().toString(), orphan = UUID.randomUUID().toString();
+        Baby baby = new Baby();
+        baby.setName(withParent);
+        baby.setParent(savedParent);
+        repo.save(baby);
+        Baby other = new Baby();
+        other.setName(orphan);
+        repo.save(other);
+
+        repo.setJoinFetch(true);
+        parentRepo.setConnectionSupplier(() -> {throw new IllegalStateException("the parent should come from the same query");});
+        try {
+            Baby got = repo.getOneBy("name", withParent);
+            assertEquals(savedParent.getPk(), got.getParent().getPk());
+            assertEquals("Joined", got.getParent().getName());
+            assertNull(repo.getOneBy("name", orphan).getParent());
+            List<Baby> both = repo.getManyBy("name", Arrays.asList(withParent, orphan));
+            assertEquals(2, both.size());
+            assertEquals(1, both.stream().filter(b -> b.getParent() != null).count());
+            assertEquals(got.getParent().getPk(), repo.get(got::getPk).getParent().getPk());
+        } finally {
+            repo.setJoinFetch(false);
+            parentRepo.setConnectionSupplier(testDB::connectionSupplier);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void getManyWithParents_loadsParentsTogether(TestDB testDB) {
+        BabyRepo<Parent> parentRepo = BabyRepo.forType(Parent.class);
+        List<Parent> parents = IntStream.range(0, 3).mapToObj(i -> {
+            Parent parent = new Parent();
+            parent.setName("parent " + i);
+            return parentRepo.save(parent);
+        }).collect(Collectors.toList());
+        String hairColor = UUID.randomUUID().toString();
+        List<Baby> babies = IntStream.range(0, 10).mapToObj(i -> {
+            Baby baby = new Baby();
+            baby.setName("sibling " + i);
+            baby.setHairColor(hairColor);
+            baby.setParent(i == 9 ? null : parents.get(i % 3));
+            return baby;
+        }).collect(Collectors.toList());
+        repo.insertAll(babies);
+
+        parentRepo.setConnectionSupplier(() -> {throw new IllegalStateException("the parents should be read on the babies' connection");});
+        List<String> prepared = new ArrayList<>();
+        repo.setConnectionSupplier(recordingStatements(testDB, prepared));
+        try {
+            List<Baby> got = repo.getManyBy("hairColor", hairColor);
+            assertEquals(10, got.size());
+            assertEquals(2, prepared.size(), "all of the parents are loaded with one query: " + prepared);
+            for (Baby baby : got) {
+                int i = Integer.parseInt(baby.getName().substring("sibling ".length()));
+                if (i == 9) {
+                    assertNull(baby.getParent());
+                } else {
+                    assertEquals(parents.get(i % 3).getPk(), baby.getParent().getPk());
+                    assertEquals("parent " + (i % 3), baby.getParent().getName());
+                }
+            }
+            Map<String, Baby> byName = got.stream().collect(Collectors.toMap(Baby::getName, b -> b));
+            assertSame(byName.get("sibling 0").getParent(), byName.get("sibling 3").getParent(), "the same parent is only loaded once");
+        } finally {
+            parentRepo.setConnectionSupplier(testDB::connectionSupplier);
+            repo.setConnectionSupplier(testDB::connectionSupplier);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void executeAndForEachRow_loadParentsOnTheSameConnection(TestDB testDB) {
+        BabyRepo<Parent> parentRepo = BabyRepo.forType(Parent.class);
+        List<Parent> parents = IntStream.range(0, 2).mapToObj(i -> {
+            Parent parent = new Parent();
+            parent.setName("same connection " + i);
+            return parentRepo.save(parent);
+        }).collect(Collectors.toList());
+        String hairColor = UUID.randomUUID().toString();
+        repo.insertAll(IntStream.range(0, 4).mapToObj(i -> {
+            Baby baby = new Baby();
+            baby.setName("same connection " + i);
+            baby.setHairColor(hairColor);
+            baby.setNumberOfToes(i);
+            baby.setParent(parents.get(i % 2));
+            return baby;
+        }).collect(Collectors.toList()));
+        String sql = "select * from baby where hair_color = ? order by numberOfToes";
+
+        parentRepo.setConnectionSupplier(() -> {throw new IllegalStateException("the parents should be read on the babies' connection");});
+        List<String> prepared = new ArrayList<>();
+        repo.setConnectionSupplier(recordingStatements(testDB, prepared));
+        try {
+            List<Baby> got = repo.execute(sql, hairColor);
+            assertEquals(2, prepared.size(), "all of the parents are loaded with one query: " + prepared);
+            for (int i = 0; i < 4; i++) {
+                assertEquals("same connection " + i % 2, got.get(i).getParent().getName());
+            }
+
+            if (testDB instanceof MysqlTestDB) {
+                //connector/j can't run anything else on the connection while it's streaming
+                parentRepo.setConnectionSupplier(testDB::connectionSupplier);
+            }
+            prepared.clear();
+            List<String> parentNames = new ArrayList<>();
+            repo.forEachRow(sql, b -> parentNames.add(b.getParent().getName()), hairColor);
+            assertEquals(Arrays.asList("same connection 0", "same connection 1", "same connection 0", "same connection 1"), parentNames);
+            if (!(testDB instanceof MysqlTestDB)) {
+                assertEquals(2, prepared.size(), "the parent query is prepared once and reused for every row: " + prepared);
+            }
+        } finally {
+            parentRepo.setConnectionSupplier(testDB::connectionSupplier);
+            repo.setConnectionSupplier(testDB::connectionSupplier);
+        }
+    }
+
     @ParameterizedTest
     @MethodSource("testDBs")
     void getManyBy_fieldName() {
@@ -142,6 +758,80 @@ class SingleKeyAutoGenEntityTest extends BaseDBTest{
         assertTrue(gotten.stream().anyMatch(b->"red".equals(b.getHairColor())));
     }
 
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void getManyBy_chunkedCollection() {
+        List<Long> pks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Baby baby = new Baby();
+            baby.setName("chunky");
+            pks.add(this.repo.save(baby).getPk());
+        }
+        List<Long> lookup = LongStream.range(-2500, 0).boxed().collect(Collectors.toList());
+        lookup.addAll(pks);
+
+        repo.setMaxInListSize(100);
+        try {
+            assertEquals(3, repo.getManyBy("pk", lookup).size());
+            Map<String, Object> any = new LinkedHashMap<>();
+            any.put("pk", lookup);
+            any.put("name", "chunky");
+            assertEquals(3, repo.getManyByAny(any).size(), "the same record from multiple chunks is only returned once");
+            repo.setParallelInLists(true);
+            assertEquals(3, repo.getManyBy("pk", lookup).size());
+        } finally {
+            repo.setMaxInListSize(null);
+            repo.setParallelInLists(false);
+        }
+        assertEquals(3, repo.getManyBy("pk", lookup).size(), "the database's own limit splits this up on sqlite");
+        assertEquals(0, repo.getManyBy("pk", Collections.emptyList()).size());
+        assertEquals(3, repo.deleteBy("pk", lookup));
+        assertEquals(0, repo.getManyBy("pk", pks).size());
+    }
+
+    interface NameAndHair {
+        String getName();
+        String hairColor();
+
+        default String describe(String separator) {
+            return getName() + separator + hairColor();
+        }
+    }
+
+    public static class HairOnly {
+        private String hairColor;
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void select() {
+        Baby baby = new Baby();
+        baby.setHairColor("teal");
+        baby.setNumberOfToes(11);
+        baby.setName("Projected");
+        baby = this.repo.save(baby);
+
+        Baby partial = repo.select("name", "hair_color").oneBy("pk", baby.getPk());
+        assertEquals("Projected", partial.getName());
+        assertEquals("teal", partial.getHairColor());
+        assertNull(partial.getPk());
+        assertEquals(0, partial.getNumberOfToes());
+        assertSame(repo.selectPlan(Arrays.asList("name", "hairColor")), repo.selectPlan(Arrays.asList("NAME", "hairColor")),
+                "plans are cached per set of fields");
+
+        List<NameAndHair> dtos = repo.select("name", "hairColor").as(NameAndHair.class).manyBy("hairColor", "teal");
+        assertEquals(1, dtos.size());
+        assertEquals("Projected", dtos.get(0).getName());
+        assertEquals("teal", dtos.get(0).hairColor());
+        assertEquals("Projected has teal", dtos.get(0).describe(" has "));
+        assertEquals(dtos.get(0), repo.select("name", "hairColor").as(NameAndHair.class).oneBy("pk", baby.getPk()));
+        assertTrue(dtos.get(0).toString().contains("name=Projected"));
+
+        assertEquals("teal", repo.select("hairColor").as(HairOnly.class).oneBy("pk", baby.getPk()).hairColor);
+        assertThrows(BabyDBException.class, () -> repo.select("name").as(NameAndHair.class));
+        assertThrows(BabyDBException.class, () -> repo.select("diaper"));
+    }
+
     @ParameterizedTest
     @MethodSource("testDBs")
     void getManyBy_colName() {
@@ -159,6 +849,160 @@ class SingleKeyAutoGenEntityTest extends BaseDBTest{
         assertTrue(gotten.stream().allMatch(b->"brown".equals(b.getHairColor())));
     }
 
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void execute() {
+        Baby baby = new Baby();
+        baby.setHairColor("brown");
+        baby.setNumberOfToes(9);
+        String randoName = UUID.randomUUID().toString();
+        baby.setName(randoName);
+        baby = this.repo.save(baby);
+
+        List<Baby> gotten = repo.execute("select numberOfToes, hair_color, parent, name, pk from baby where name=?", randoName);
+        assertEquals(1, gotten.size());
+        assertEquals(baby.getPk(), gotten.get(0).getPk());
+        assertEquals(baby.getName(), gotten.get(0).getName());
+        assertEquals(baby.getHairColor(), gotten.get(0).getHairColor());
+        assertEquals(baby.getNumberOfToes(), gotten.get(0).getNumberOfToes());
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void execute_allSupportedTypes(TestDB testDB) {
+        BabyRepo<EntityWithAllSupportedTypes> typesRepo = BabyRepo.forType(EntityWithAllSupportedTypes.class);
+        typesRepo.setConnectionSupplier(testDB::connectionSupplier);
+        String name = UUID.randomUUID().toString();
+        EntityWithAllSupportedTypes full = new EntityWithAllSupportedTypes();
+        full.setName(name);
+        full.setIntValue(-7);
+        full.setIntegerValue(42);
+        full.setLongValue(1L << 40);
+        full.setLongWrapper(-(1L << 40));
+        full.setDoubleValue(2.5);
+        full.setDoubleWrapper(-0.25);
+        full.setBooleanValue(true);
+        full.setBooleanWrapper(false);
+        full.setShortValue((short) 300);
+        full.setDecimalValue(new BigDecimal("12.50"));
+        full.setTimestampValue(Timestamp.valueOf("2018-06-01 12:34:56"));
+        typesRepo.save(full);
+        EntityWithAllSupportedTypes empty = new EntityWithAllSupportedTypes();
+        empty.setName(name + " empty");
+        typesRepo.save(empty);
+
+        //the columns are in a different order than the fields, so nothing lines up by accident
+        String sql = "select timestamp_value, boolean_wrapper, name, decimal_value, long_wrapper, short_value, double_value, pk, " +
+                "integer_value, boolean_value, long_value, double_wrapper, int_value from all_types where name = ?";
+        EntityWithAllSupportedTypes got = typesRepo.execute(sql, name).get(0);
+        assertNotNull(got.getPk());
+        assertEquals(name, got.getName());
+        assertEquals(-7, got.getIntValue());
+        assertEquals(Integer.valueOf(42), got.getIntegerValue());
+        assertEquals(1L << 40, got.getLongValue());
+        assertEquals(Long.valueOf(-(1L << 40)), got.getLongWrapper());
+        assertEquals(2.5, got.getDoubleValue());
+        assertEquals(Double.valueOf(-0.25), got.getDoubleWrapper());
+        assertTrue(got.isBooleanValue());
+        assertEquals(Boolean.FALSE, got.getBooleanWrapper());
+        assertEquals(300, got.getShortValue());
+        assertEquals(0, new BigDecimal("12.5").compareTo(got.getDecimalValue()), got.getDecimalValue().toString());
+        assertEquals(Timestamp.valueOf("2018-06-01 12:34:56"), got.getTimestampValue());
+
+        EntityWithAllSupportedTypes gotEmpty = typesRepo.execute(sql, name + " empty").get(0);
+        assertEquals(name + " empty", gotEmpty.getName());
+        assertEquals(0, gotEmpty.getIntValue());
+        assertEquals(0L, gotEmpty.getLongValue());
+        assertEquals(0.0, gotEmpty.getDoubleValue());
+        assertFalse(gotEmpty.isBooleanValue());
+        assertEquals(0, gotEmpty.getShortValue());
+        assertNull(gotEmpty.getIntegerValue());
+        assertNull(gotEmpty.getLongWrapper());
+        assertNull(gotEmpty.getDoubleWrapper());
+        assertNull(gotEmpty.getBooleanWrapper());
+        assertNull(gotEmpty.getDecimalValue());
+        assertNull(gotEmpty.getTimestampValue());
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void stream(TestDB testDB) throws SQLException {
+        List<Baby> babies = IntStream.range(0, 30).mapToObj(i -> {
+            Baby baby = new Baby();
+            baby.setName("streamed");
+            baby.setNumberOfToes(i);
+            return baby;
+        }).collect(Collectors.toList());
+        repo.insertAll(babies);
+
+        List<Connection> connections = new ArrayList<>();
+        repo.setConnectionSupplier(() -> {
+            Connection conn = testDB.connectionSupplier();
+            connections.add(conn);
+            return conn;
+        });
+        repo.setFetchSize(7);
+        try {
+            try (Stream<Baby> streamed = repo.stream()) {
+                assertEquals(30, streamed.filter(b -> "streamed".equals(b.getName())).count());
+            }
+            Map<String, Object> where = new LinkedHashMap<>();
+            where.put("name", "streamed");
+            where.put("numberOfToes", Arrays.asList(1, 2, 3));
+            try (Stream<Baby> streamed = repo.streamManyByAll(where)) {
+                assertEquals(Arrays.asList(1, 2, 3), streamed.map(Baby::getNumberOfToes).sorted().collect(Collectors.toList()));
+            }
+            try (Stream<Baby> streamed = repo.streamExecute("select * from baby where name = ? order by numberOfToes", "streamed")) {
+                Iterator<Baby> it = streamed.iterator();
+                assertEquals(0, it.next().getNumberOfToes());
+                assertFalse(connections.get(connections.size() - 1).isClosed(), "the connection stays open while the stream is being read");
+            }
+            for (Connection conn : connections) {
+                assertTrue(conn.isClosed());
+            }
+        } finally {
+            repo.setConnectionSupplier(testDB::connectionSupplier);
+            repo.setFetchSize(1000);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void forEachRow() {
+        List<Baby> babies = IntStream.range(0, 10).mapToObj(i -> {
+            Baby baby = new Baby();
+            baby.setName(i % 2 == 0 ? "even" : null);
+            baby.setHairColor("flyweight");
+            baby.setNumberOfToes(i);
+            return baby;
+        }).collect(Collectors.toList());
+        repo.insertAll(babies);
+
+        Set<Baby> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<String> names = new ArrayList<>();
+        int[] toes = new int[1];
+        repo.forEachRow("select * from baby where hair_color = ? order by numberOfToes", b -> {
+            instances.add(b);
+            names.add(b.getName());
+            toes[0] += b.getNumberOfToes();
+        }, "flyweight");
+        assertEquals(1, instances.size(), "every row is read into the same instance");
+        assertEquals(Arrays.asList("even", null, "even", null, "even", null, "even", null, "even", null), names);
+        assertEquals(45, toes[0]);
+
+        int[] count = new int[1];
+        repo.forEachRow(b -> count[0] += "flyweight".equals(b.getHairColor()) ? 1 : 0);
+        assertEquals(10, count[0]);
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void execute_missingColumns() {
+        this.repo.save(new Baby());
+        BabyDBException e = assertThrows(BabyDBException.class, () -> repo.execute("select pk, name from baby"));
+        assertTrue(e.getMessage().contains("HAIR_COLOR"));
+    }
+
     @ParameterizedTest
     @MethodSource("testDBs")
     void save_insert() {
@@ -180,6 +1024,109 @@ class SingleKeyAutoGenEntityTest extends BaseDBTest{
         assertEquals(loaded.getNumberOfToes(), saved.getNumberOfToes());
     }
 
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void count_exists_aggregate(TestDB testDB) {
+        List<Baby> babies = IntStream.range(1, 5).mapToObj(i -> {
+            Baby baby = new Baby();
+            baby.setName("counted");
+            baby.setHairColor(i % 2 == 0 ? "even" : "odd");
+            baby.setNumberOfToes(i);
+            return baby;
+        }).collect(Collectors.toList());
+        repo.insertAll(babies);
+        List<Long> pks = babies.stream().map(Baby::getPk).collect(Collectors.toList());
+
+        assertTrue(repo.count() >= 4);
+        assertEquals(4, repo.countBy("name", "counted"));
+        assertEquals(4, repo.countBy("pk", pks));
+        Map<String, Object> any = new LinkedHashMap<>();
+        any.put("pk", pks.subList(0, 2));
+        any.put("hair_color", "even");
+        assertTrue(repo.countByAny(any) >= 3);
+
+        assertTrue(repo.existsBy("pk", pks.get(0)));
+        assertFalse(repo.existsBy("pk", -1L));
+        assertFalse(repo.existsBy("pk", Collections.emptyList()));
+
+        Map<String, Object> counted = Collections.singletonMap("name", "counted");
+        assertEquals(10L, repo.aggregateByAll(Aggregate.SUM, "numberOfToes", counted).get());
+        assertEquals(1L, repo.aggregateByAll(Aggregate.MIN, "numberOfToes", counted).get());
+        assertEquals(4L, repo.aggregateByAll(Aggregate.MAX, "numberOfToes", counted).get());
+        assertEquals(2.5, repo.aggregateByAll(Aggregate.AVG, "numberOfToes", counted).get(), "integer columns don't get rounded");
+        assertFalse(repo.aggregateByAll(Aggregate.SUM, "numberOfToes", Collections.singletonMap("name", "nobody")).isPresent());
+        assertThrows(BabyDBException.class, () -> repo.aggregate(Aggregate.MAX, "name"), "strings aren't numbers");
+        assertThrows(BabyDBException.class, () -> repo.aggregate(Aggregate.MIN, "parent"), "neither are children");
+
+        repo.setMaxInListSize(2);
+        try {
+            List<Long> lookup = new ArrayList<>(pks);
+            lookup.add(-1L);
+            assertEquals(4, repo.countBy("pk", lookup));
+            Map<String, Object> overlapping = new LinkedHashMap<>();
+            overlapping.put("pk", lookup);
+            overlapping.put("name", "counted");
+            assertEquals(repo.countBy("name", "counted"), repo.countByAny(overlapping), "chunks of an ANY are only counted once");
+            assertEquals(2.5, repo.aggregateByAll(Aggregate.AVG, "numberOfToes", Collections.singletonMap("pk", lookup)).get());
+        } finally {
+            repo.setMaxInListSize(null);
+        }
+
+        BabyRepo<EntityWithAllSupportedTypes> typesRepo = BabyRepo.forType(EntityWithAllSupportedTypes.class);
+        typesRepo.setConnectionSupplier(testDB::connectionSupplier);
+        String name = UUID.randomUUID().toString();
+        for (long value : new long[]{(1L << 60) + 1, 3}) {
+            EntityWithAllSupportedTypes big = new EntityWithAllSupportedTypes();
+            big.setName(name);
+            big.setLongValue(value);
+            big.setDecimalValue(new BigDecimal("0.10"));
+            big.setDoubleValue(0.5);
+            typesRepo.save(big);
+        }
+        Map<String, Object> named = Collections.singletonMap("name", name);
+        assertEquals((1L << 60) + 1, typesRepo.aggregateByAll(Aggregate.MAX, "longValue", named).get(), "longs past 2^53 come back exactly");
+        assertEquals((1L << 60) + 4, typesRepo.aggregateByAll(Aggregate.SUM, "longValue", named).get());
+        assertEquals(0, new BigDecimal("0.2").compareTo((BigDecimal) typesRepo.aggregateByAll(Aggregate.SUM, "decimalValue", named).get()));
+        assertEquals(1.0, typesRepo.aggregateByAll(Aggregate.SUM, "doubleValue", named).get());
+        assertEquals(0.1, typesRepo.aggregateByAll(Aggregate.AVG, "decimalValue", named).get());
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void page() {
+        repo.insertAll(IntStream.range(0, 25).mapToObj(i -> {
+            Baby baby = new Baby();
+            baby.setName("paged");
+            baby.setNumberOfToes(i % 4);
+            return baby;
+        }).collect(Collectors.toList()));
+
+        List<Baby> paged = new ArrayList<>();
+        Page<Baby> page = repo.page(Collections.singletonList("numberOfToes desc"), null, 7);
+        assertEquals(Arrays.asList("numberOfToes desc", "pk"), page.getOrderBy());
+        int pages = 0;
+        while (page != null) {
+            assertTrue(page.getRecords().size() <= 7);
+            paged.addAll(page.getRecords());
+            page = repo.nextPage(page);
+            pages++;
+        }
+        List<Baby> all = repo.getAll();
+        assertEquals((all.size() + 6) / 7, pages);
+        assertEquals(all.size(), paged.size());
+        assertEquals(all.stream().map(Baby::getPk).collect(Collectors.toSet()), paged.stream().map(Baby::getPk).collect(Collectors.toSet()));
+        for (int i = 1; i < paged.size(); i++) {
+            Baby previous = paged.get(i - 1), current = paged.get(i);
+            assertTrue(previous.getNumberOfToes() > current.getNumberOfToes()
+                    || (previous.getNumberOfToes() == current.getNumberOfToes() && previous.getPk() < current.getPk()));
+        }
+
+        Page<Baby> first = repo.page(Arrays.asList("pk"), null, 3);
+        Page<Baby> after = repo.page(Arrays.asList("pk"), first.getNextKey(), 3);
+        assertTrue(after.getRecords().get(0).getPk() > first.getRecords().get(2).getPk());
+        assertThrows(BabyDBException.class, () -> repo.page(Arrays.asList("name"), Collections.singletonList("paged"), 3));
+    }
+
     @ParameterizedTest
     @MethodSource("testDBs")
     void save_update() {
@@ -245,6 +1192,56 @@ class SingleKeyAutoGenEntityTest extends BaseDBTest{
         assertThrows(BabyDBException.class, ()->repo.update(new Baby()));
     }
 
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void updateAll_deleteAll() {
+        List<Baby> babies = IntStream.range(0, 25).mapToObj(i -> {
+            Baby baby = new Baby();
+            baby.setName("before");
+            return baby;
+        }).collect(Collectors.toList());
+        repo.insertAll(babies);
+        babies.forEach(b -> b.setName("after"));
+        Baby missing = new Baby();
+        missing.setPk(-1L);
+        List<Baby> toUpdate = new ArrayList<>(babies);
+        toUpdate.add(missing);
+
+        repo.setBatchSize(10);
+        try {
+            int[] updated = repo.updateAll(toUpdate);
+            assertEquals(26, updated.length);
+            assertEquals(0, updated[25]);
+            assertEquals(25, repo.getManyBy("name", "after").size());
+
+            int[] deleted = repo.deleteAll(babies.subList(0, 20));
+            assertEquals(20, deleted.length);
+            assertEquals(5, repo.getManyBy("name", "after").size());
+        } finally {
+            repo.setBatchSize(1000);
+        }
+        assertThrows(BabyDBException.class, () -> repo.updateAll(Collections.singletonList(new Baby())));
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void updateMany() {
+        Baby baby = new Baby();
+        baby.setName("one");
+        baby.setHairColor("red");
+        baby = this.repo.save(baby);
+
+        Baby otherBaby = new Baby(baby);
+        otherBaby.setName("two");
+        otherBaby.setHairColor("blue");
+        otherBaby = this.repo.save(otherBaby);
+
+        int updated = repo.updateMany(Collections.singletonMap("hairColor", "green"), Collections.singletonMap("name", "one"));
+        assertEquals(1, updated);
+        assertEquals("green", repo.get(baby::getPk).getHairColor());
+        assertEquals("blue", repo.get(otherBaby::getPk).getHairColor());
+    }
+
     @ParameterizedTest
     @MethodSource("testDBs")
     void insert() {
@@ -261,6 +1258,81 @@ class SingleKeyAutoGenEntityTest extends BaseDBTest{
         assertEquals(baby.getNumberOfToes(), saved.getNumberOfToes());
     }
 
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void insertAll() {
+        List<Baby> babies = IntStream.range(0, 250).mapToObj(i -> {
+            Baby baby = new Baby();
+            baby.setName("batched");
+            baby.setNumberOfToes(i);
+            return baby;
+        }).collect(Collectors.toList());
+
+        repo.setBatchSize(100);
+        List<Baby> inserted;
+        try {
+            inserted = repo.insertAll(babies);
+        } finally {
+            repo.setBatchSize(1000);
+        }
+        assertEquals(babies, inserted);
+        assertTrue(inserted.stream().allMatch(b -> b.getPk() != null));
+        assertEquals(250, inserted.stream().map(Baby::getPk).distinct().count());
+        inserted.forEach(b -> assertEquals(b.getNumberOfToes(), repo.get(b::getPk).getNumberOfToes()));
+        assertEquals(250, repo.getManyBy("name", "batched").size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void insertAll_failedBatchIsRolledBack(TestDB testDB) {
+        String hairColor = UUID.randomUUID().toString();
+        List<Baby> babies = IntStream.range(0, 4).mapToObj(i -> {
+            Baby baby = new Baby();
+            baby.setName("rolled back " + i);
+            baby.setHairColor(hairColor);
+            baby.setNumberOfToes(i);
+            return baby;
+        }).collect(Collectors.toList());
+
+        repo.setBatchSize(2);
+        repo.setConnectionSupplier(failingOnRow(testDB, 4));
+        try {
+            assertThrows(BabyDBException.class, () -> repo.insertAll(babies));
+        } finally {
+            repo.setConnectionSupplier(testDB::connectionSupplier);
+            repo.setBatchSize(1000);
+        }
+        List<Baby> found = repo.getManyBy("hairColor", hairColor);
+        assertEquals(Arrays.asList(0, 1), found.stream().map(Baby::getNumberOfToes).sorted().collect(Collectors.toList()),
+                "the first batch was committed, the one that failed was rolled back");
+        assertTrue(babies.subList(0, 2).stream().allMatch(b -> b.getPk() != null));
+        assertTrue(babies.subList(2, 4).stream().allMatch(b -> b.getPk() == null), "the rolled back rows don't have keys");
+        repo.deleteBy("hairColor", hairColor);
+    }
+
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void insertAll_refetch() {
+        Baby baby = new Baby();
+        baby.setName("one");
+        Baby other = new Baby();
+        other.setName("two");
+
+        List<Baby> inserted = repo.insertAll(Arrays.asList(baby, other), true);
+        assertNotSame(baby, inserted.get(0));
+        assertEquals(baby.getPk(), inserted.get(0).getPk());
+        assertEquals("one", inserted.get(0).getName());
+        assertEquals(other.getPk(), inserted.get(1).getPk());
+        assertEquals("two", inserted.get(1).getName());
+
+        Parent parent = new Parent();
+        parent.setName("mom");
+        Parent insertedParent = BabyRepo.forType(Parent.class).insertAll(Collections.singletonList(parent), true).get(0);
+        assertNotNull(parent.getPk(), "column value providers are applied before the insert");
+        assertEquals(parent.getPk(), insertedParent.getPk());
+        assertEquals("mom", insertedParent.getName());
+    }
+
     @Disabled
     @ParameterizedTest
     @MethodSource("testDBs")
@@ -322,6 +1394,25 @@ class SingleKeyAutoGenEntityTest extends BaseDBTest{
         assertEquals(baby.getNumberOfToes(), saved.getNumberOfToes());
     }
 
+    @ParameterizedTest
+    @MethodSource("testDBs")
+    void insert_nullWrappers() {
+        BabyRepo<UncountedBaby> uncountedRepo = BabyRepo.forType(UncountedBaby.class);
+        UncountedBaby baby = new UncountedBaby();
+        baby.setName(UUID.randomUUID().toString());
+        UncountedBaby saved = uncountedRepo.insert(baby);
+        try {
+            assertNotNull(saved.getPk());
+            assertNull(saved.getNumberOfToes(), "a null column reads back as null, not 0");
+            assertNull(uncountedRepo.getOneBy("name", baby.getName()).getNumberOfToes());
+
+            saved.setNumberOfToes(0);
+            assertEquals(Integer.valueOf(0), uncountedRepo.update(saved).getNumberOfToes(), "0 is still 0");
+        } finally {
+            uncountedRepo.deleteBy("name", baby.getName());
+        }
+    }
+
     @ParameterizedTest
     @MethodSource("testDBs")
     void deleteByPK() {
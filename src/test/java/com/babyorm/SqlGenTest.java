@@ -0,0 +1,54 @@
+package com.babyorm;
+
+import com.babyorm.util.SqlGen;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlGenTest {
+
+    @Test
+    public void sameShapeSameSql() {
+        LinkedHashMap<String, Object> first = new LinkedHashMap<>();
+        first.put("NAME", "Charlie");
+        first.put("PK", Arrays.asList(1, 2, 3));
+        LinkedHashMap<String, Object> second = new LinkedHashMap<>();
+        second.put("NAME", "Bob");
+        second.put("PK", Arrays.asList(4, 5, 6));
+
+        String sql = SqlGen.whereAll(first);
+        assertEquals(" where NAME=? AND PK in (?,?,?) ", sql);
+        assertSame(sql, SqlGen.whereAll(second));
+    }
+
+    @Test
+    public void differentShapeDifferentSql() {
+        LinkedHashMap<String, Object> three = new LinkedHashMap<>();
+        three.put("PK", Arrays.asList(1, 2, 3));
+        LinkedHashMap<String, Object> two = new LinkedHashMap<>();
+        two.put("PK", Arrays.asList(1, 2));
+        LinkedHashMap<String, Object> both = new LinkedHashMap<>();
+        both.put("NAME", "Charlie");
+        both.put("PK", 1);
+
+        assertEquals(" where PK in (?,?,?) ", SqlGen.whereAll(three));
+        assertEquals(" where PK in (?,?) ", SqlGen.whereAll(two));
+        assertEquals(" where NAME=? AND PK=? ", SqlGen.whereAll(both));
+        assertEquals(" where NAME=? OR PK=? ", SqlGen.whereAny(both));
+        assertEquals("update BABY set NAME=?,HAIR_COLOR=?", SqlGen.update("BABY", Arrays.asList("NAME", "HAIR_COLOR")));
+        assertEquals("update PARENT set NAME=?", SqlGen.update("PARENT", Arrays.asList("NAME")));
+        assertEquals("update BABY set NAME=?", SqlGen.update("BABY", Arrays.asList("NAME")));
+    }
+
+    @Test
+    public void seek() {
+        assertEquals(" where (A,B)> (?,?) ", SqlGen.seek(Arrays.asList("A", "B"), new boolean[]{false, false}, true));
+        assertEquals(" where (A>?) OR (A=? AND B>?) ", SqlGen.seek(Arrays.asList("A", "B"), new boolean[]{false, false}, false));
+        assertEquals(" where (A<?) OR (A=? AND B>?) ", SqlGen.seek(Arrays.asList("A", "B"), new boolean[]{true, false}, true),
+                "row values can't go two directions at once");
+        assertEquals(" order by A desc,B asc", SqlGen.orderBy(Arrays.asList("A", "B"), new boolean[]{true, false}));
+    }
+}
@@ -0,0 +1,53 @@
+package com.babyorm.db;
+
+import com.babyorm.annotation.ColumnName;
+import com.babyorm.annotation.Generated;
+import com.babyorm.annotation.JoinTo;
+import com.babyorm.annotation.TableName;
+
+/**
+ * A baby that uses its parent column to point at another baby by name, so two of them can point at each other
+ */
+@TableName("baby")
+public class BabyTwin {
+
+    @Generated(isDatabaseGenerated = true)
+    private Long pk;
+    private String name;
+    @ColumnName("numberOfToes")
+    private int numberOfToes;
+    @JoinTo("name")
+    private BabyTwin parent;
+
+    public Long getPk() {
+        return pk;
+    }
+
+    public void setPk(Long pk) {
+        this.pk = pk;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getNumberOfToes() {
+        return numberOfToes;
+    }
+
+    public void setNumberOfToes(int numberOfToes) {
+        this.numberOfToes = numberOfToes;
+    }
+
+    public BabyTwin getParent() {
+        return parent;
+    }
+
+    public void setParent(BabyTwin parent) {
+        this.parent = parent;
+    }
+}
@@ -14,6 +14,10 @@ public class DerbyTestDB extends TestDB {
         return Arrays.asList(
                 "create table baby (pk INT NOT NULL GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1) primary key, name VARCHAR(36), parent varchar(36), hair_color VARCHAR(36), numberOfToes INT )",
                 "create table parent (pk varchar(36) primary key, name VARCHAR(36))",
-                "create table no_autogen (pk VARCHAR(20), colName VARCHAR(36) )");
+                "create table no_autogen (pk VARCHAR(20), colName VARCHAR(36) )",
+                "create table baby_guardian (baby INT, guardian varchar(36))",
+                "create table all_types (pk INT NOT NULL GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1) primary key, name VARCHAR(36), " +
+                        "int_value INT, integer_value INT, long_value BIGINT, long_wrapper BIGINT, double_value DOUBLE, double_wrapper DOUBLE, " +
+                        "boolean_value BOOLEAN, boolean_wrapper BOOLEAN, short_value SMALLINT, decimal_value DECIMAL(10,2), timestamp_value TIMESTAMP)");
     }
 }
\ No newline at end of file
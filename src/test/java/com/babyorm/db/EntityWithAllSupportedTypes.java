@@ -1,4 +1,133 @@
 package com.babyorm.db;
 
+import com.babyorm.annotation.Generated;
+import com.babyorm.annotation.TableName;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * One field of every type the mapper reads and binds on its own, primitives and their wrappers both
+ */
+@TableName("all_types")
 public class EntityWithAllSupportedTypes {
+
+    @Generated(isDatabaseGenerated = true)
+    private Long pk;
+    private String name;
+    private int intValue;
+    private Integer integerValue;
+    private long longValue;
+    private Long longWrapper;
+    private double doubleValue;
+    private Double doubleWrapper;
+    private boolean booleanValue;
+    private Boolean booleanWrapper;
+    private short shortValue;
+    private BigDecimal decimalValue;
+    private Timestamp timestampValue;
+
+    public Long getPk() {
+        return pk;
+    }
+
+    public void setPk(Long pk) {
+        this.pk = pk;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getIntValue() {
+        return intValue;
+    }
+
+    public void setIntValue(int intValue) {
+        this.intValue = intValue;
+    }
+
+    public Integer getIntegerValue() {
+        return integerValue;
+    }
+
+    public void setIntegerValue(Integer integerValue) {
+        this.integerValue = integerValue;
+    }
+
+    public long getLongValue() {
+        return longValue;
+    }
+
+    public void setLongValue(long longValue) {
+        this.longValue = longValue;
+    }
+
+    public Long getLongWrapper() {
+        return longWrapper;
+    }
+
+    public void setLongWrapper(Long longWrapper) {
+        this.longWrapper = longWrapper;
+    }
+
+    public double getDoubleValue() {
+        return doubleValue;
+    }
+
+    public void setDoubleValue(double doubleValue) {
+        this.doubleValue = doubleValue;
+    }
+
+    public Double getDoubleWrapper() {
+        return doubleWrapper;
+    }
+
+    public void setDoubleWrapper(Double doubleWrapper) {
+        this.doubleWrapper = doubleWrapper;
+    }
+
+    public boolean isBooleanValue() {
+        return booleanValue;
+    }
+
+    public void setBooleanValue(boolean booleanValue) {
+        this.booleanValue = booleanValue;
+    }
+
+    public Boolean getBooleanWrapper() {
+        return booleanWrapper;
+    }
+
+    public void setBooleanWrapper(Boolean booleanWrapper) {
+        this.booleanWrapper = booleanWrapper;
+    }
+
+    public short getShortValue() {
+        return shortValue;
+    }
+
+    public void setShortValue(short shortValue) {
+        this.shortValue = shortValue;
+    }
+
+    public BigDecimal getDecimalValue() {
+        return decimalValue;
+    }
+
+    public void setDecimalValue(BigDecimal decimalValue) {
+        this.decimalValue = decimalValue;
+    }
+
+    public Timestamp getTimestampValue() {
+        return timestampValue;
+    }
+
+    public void setTimestampValue(Timestamp timestampValue) {
+        this.timestampValue = timestampValue;
+    }
 }
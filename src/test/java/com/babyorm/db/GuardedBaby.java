@@ -0,0 +1,55 @@
+package com.babyorm.db;
+
+import com.babyorm.annotation.ColumnName;
+import com.babyorm.annotation.Generated;
+import com.babyorm.annotation.JoinTable;
+import com.babyorm.annotation.TableName;
+
+import java.util.List;
+
+/**
+ * A baby with any number of guardians, tied together by the baby_guardian table
+ */
+@TableName("baby")
+public class GuardedBaby {
+
+    @Generated(isDatabaseGenerated = true)
+    private Long pk;
+    private String name;
+    @ColumnName("hair_color")
+    private String hairColor;
+    @JoinTable(tableName = "baby_guardian", thisColumn = "baby", propColumn = "guardian")
+    private List<Parent> guardians;
+
+    public Long getPk() {
+        return pk;
+    }
+
+    public void setPk(Long pk) {
+        this.pk = pk;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getHairColor() {
+        return hairColor;
+    }
+
+    public void setHairColor(String hairColor) {
+        this.hairColor = hairColor;
+    }
+
+    public List<Parent> getGuardians() {
+        return guardians;
+    }
+
+    public void setGuardians(List<Parent> guardians) {
+        this.guardians = guardians;
+    }
+}
@@ -0,0 +1,64 @@
+package com.babyorm.db;
+
+import com.babyorm.Lazy;
+import com.babyorm.annotation.ColumnName;
+import com.babyorm.annotation.Generated;
+import com.babyorm.annotation.JoinTo;
+import com.babyorm.annotation.TableName;
+
+/**
+ * A baby that doesn't go get its parent until someone asks
+ */
+@TableName("baby")
+public class LazyBaby {
+
+    @Generated(isDatabaseGenerated = true)
+    private Long pk;
+    private String name;
+    @ColumnName("hair_color")
+    private String hairColor;
+    @ColumnName("numberOfToes")
+    private int numberOfToes;
+    @JoinTo("pk")
+    private Lazy<Parent> parent;
+
+    public Long getPk() {
+        return pk;
+    }
+
+    public void setPk(Long pk) {
+        this.pk = pk;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getHairColor() {
+        return hairColor;
+    }
+
+    public void setHairColor(String hairColor) {
+        this.hairColor = hairColor;
+    }
+
+    public int getNumberOfToes() {
+        return numberOfToes;
+    }
+
+    public void setNumberOfToes(int numberOfToes) {
+        this.numberOfToes = numberOfToes;
+    }
+
+    public Lazy<Parent> getParent() {
+        return parent;
+    }
+
+    public void setParent(Lazy<Parent> parent) {
+        this.parent = parent;
+    }
+}
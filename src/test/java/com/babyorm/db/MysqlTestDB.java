@@ -37,8 +37,14 @@ public class MysqlTestDB extends TestDB {
                 "drop table if exists baby",
                 "drop table if exists no_autogen",
                 "drop table if exists parent",
+                "drop table if exists baby_guardian",
+                "drop table if exists all_types",
                 "create table baby (pk int auto_increment primary key, name text, hair_color text, numberOfToes INT, parent text)",
                 "create table parent (pk text, name text)",
-                "create table no_autogen (pk text, name text )");
+                "create table no_autogen (pk text, name text )",
+                "create table baby_guardian (baby INT, guardian text)",
+                "create table all_types (pk int auto_increment primary key, name text, int_value INT, integer_value INT, long_value BIGINT, " +
+                        "long_wrapper BIGINT, double_value DOUBLE, double_wrapper DOUBLE, boolean_value BOOLEAN, boolean_wrapper BOOLEAN, " +
+                        "short_value SMALLINT, decimal_value DECIMAL(10,2), timestamp_value DATETIME)");
     }
 }
@@ -34,9 +34,15 @@ public class PostgresTestDB extends TestDB {
                 "drop table if exists baby",
                 "drop table if exists no_autogen",
                 "drop table if exists parent",
+                "drop table if exists baby_guardian",
+                "drop table if exists all_types",
                 "create table baby (pk SERIAL, name text, hair_color text, numberOfToes INT, parent text )",
                 "create table no_autogen (pk text, name text )",
-                "create table parent (pk text, name text)"
+                "create table parent (pk text, name text)",
+                "create table baby_guardian (baby INT, guardian text)",
+                "create table all_types (pk SERIAL, name text, int_value INT, integer_value INT, long_value BIGINT, long_wrapper BIGINT, " +
+                        "double_value DOUBLE PRECISION, double_wrapper DOUBLE PRECISION, boolean_value BOOLEAN, boolean_wrapper BOOLEAN, " +
+                        "short_value SMALLINT, decimal_value NUMERIC(10,2), timestamp_value TIMESTAMP)"
         );
     }
 }
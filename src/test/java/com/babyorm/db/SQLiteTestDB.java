@@ -15,9 +15,15 @@ public class SQLiteTestDB extends TestDB{
                 "drop table if exists baby",
                 "drop table if exists no_autogen",
                 "drop table if exists parent",
+                "drop table if exists baby_guardian",
+                "drop table if exists all_types",
                 "create table baby (pk INTEGER PRIMARY KEY, name text, hair_color text, numberOfToes INTEGER, parent text)",
                 "create table no_autogen (pk text, name text )",
-                "create table parent (pk text, name text )"
+                "create table parent (pk text, name text )",
+                "create table baby_guardian (baby INTEGER, guardian text)",
+                "create table all_types (pk INTEGER PRIMARY KEY, name text, int_value INTEGER, integer_value INTEGER, long_value INTEGER, " +
+                        "long_wrapper INTEGER, double_value REAL, double_wrapper REAL, boolean_value BOOLEAN, boolean_wrapper BOOLEAN, " +
+                        "short_value INTEGER, decimal_value NUMERIC, timestamp_value DATETIME)"
         );
     }
 }
@@ -0,0 +1,42 @@
+package com.babyorm.db;
+
+import com.babyorm.annotation.ColumnName;
+import com.babyorm.annotation.Generated;
+import com.babyorm.annotation.TableName;
+
+/**
+ * A baby whose toes might not have been counted yet, so the column can be null
+ */
+@TableName("baby")
+public class UncountedBaby {
+
+    @Generated(isDatabaseGenerated = true)
+    private Long pk;
+    private String name;
+    @ColumnName("numberOfToes")
+    private Integer numberOfToes;
+
+    public Long getPk() {
+        return pk;
+    }
+
+    public void setPk(Long pk) {
+        this.pk = pk;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getNumberOfToes() {
+        return numberOfToes;
+    }
+
+    public void setNumberOfToes(Integer numberOfToes) {
+        this.numberOfToes = numberOfToes;
+    }
+}
@@ -0,0 +1,73 @@
+package com.babyorm.processor;
+
+import org.junit.jupiter.api.Test;
+
+import javax.tools.*;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityAccessorProcessorTest {
+
+    @Test
+    void privateEntities_areSkipped() throws IOException {
+        Path out = Files.createTempDirectory("generated");
+        DiagnosticCollector<JavaFileObject> diagnostics = compile(out, "test.Outer",
+                "package test;\n" +
+                "import com.babyorm.annotation.PK;\n" +
+                "public class Outer {\n" +
+                "    private static class Hidden {\n" +
+                "        @PK public Long id;\n" +
+                "        public Hidden() {}\n" +
+                "    }\n" +
+                "    private static class Wrapper {\n" +
+                "        public static class Inside {\n" +
+                "            @PK public Long id;\n" +
+                "        }\n" +
+                "    }\n" +
+                "    public static class Visible {\n" +
+                "        @PK public Long id;\n" +
+                "    }\n" +
+                "}\n");
+
+        assertEquals(Collections.emptyList(), messages(diagnostics, Diagnostic.Kind.ERROR), "the generated code compiles");
+        List<String> notes = messages(diagnostics, Diagnostic.Kind.NOTE);
+        assertTrue(notes.stream().anyMatch(n -> n.contains("test.Outer.Hidden, it's private")), notes.toString());
+        assertTrue(notes.stream().anyMatch(n -> n.contains("test.Outer.Wrapper.Inside, test.Outer.Wrapper is private")), notes.toString());
+        assertFalse(Files.exists(out.resolve("test/Outer_Hidden_BabyAccessor.java")));
+        assertFalse(Files.exists(out.resolve("test/Outer_Wrapper_Inside_BabyAccessor.java")));
+        assertTrue(Files.exists(out.resolve("test/Outer_Visible_BabyAccessor.java")));
+    }
+
+    private static DiagnosticCollector<JavaFileObject> compile(Path out, String className, String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull(compiler, "the tests need a jdk, not a jre");
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"),
+                "-d", out.toString(), "-s", out.toString());
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null, Collections.singletonList(file));
+        task.setProcessors(Collections.singletonList(new EntityAccessorProcessor()));
+        task.call();
+        return diagnostics;
+    }
+
+    private static List<String> messages(DiagnosticCollector<JavaFileObject> diagnostics, Diagnostic.Kind kind) {
+        return diagnostics.getDiagnostics().stream()
+                .filter(d -> d.getKind() == kind)
+                .map(d -> d.getMessage(null))
+                .collect(Collectors.toList());
+    }
+}